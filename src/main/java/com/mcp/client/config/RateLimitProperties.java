@@ -0,0 +1,119 @@
+package com.mcp.client.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request rate limits, configured as {@code security.rate-limit}:
+ *
+ * <pre>
+ * security:
+ *   rate-limit:
+ *     classes:
+ *       default:
+ *         capacity: 50
+ *         period: 1m
+ *       tools:
+ *         capacity: 100
+ *         period: 1m
+ *     routes:
+ *       - pattern: /api/mcp/servers/*&#47;tools/call/batch
+ *         route-class: tools
+ *         cost: 10
+ * </pre>
+ *
+ * Each caller (the authenticated user, or the client address for anonymous
+ * requests) gets a separate bucket per route class. A request takes
+ * {@code cost} tokens from the bucket of the first route whose pattern and
+ * method match, or one token from the {@code default} class.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "security.rate-limit")
+public class RateLimitProperties {
+
+    public static final String DEFAULT_CLASS = "default";
+
+    private boolean enabled = true;
+
+    /**
+     * Buckets kept in memory; the least recently used are dropped beyond this
+     */
+    private long maxBuckets = 100_000;
+
+    /**
+     * Buckets unused for this long are dropped; keep it longer than the
+     * longest period so a drained bucket is not reset early
+     */
+    private Duration bucketIdleTimeout = Duration.ofMinutes(10);
+
+    private Map<String, Limit> classes = new HashMap<>(Map.of(
+            DEFAULT_CLASS, new Limit(50, Duration.ofMinutes(1)),
+            "auth", new Limit(10, Duration.ofMinutes(1))));
+
+    private List<Route> routes = new ArrayList<>(List.of(
+            new Route("/api/auth/**", null, "auth", 1),
+            new Route("/api/mcp/servers/*/tools/call/batch", "POST", DEFAULT_CLASS, 10),
+            new Route("/api/mcp/servers/*/tools/jobs", "POST", DEFAULT_CLASS, 2),
+            new Route("/api/mcp/refresh", "POST", DEFAULT_CLASS, 10)));
+
+    public Limit limitOf(String routeClass) {
+        Limit limit = classes.get(routeClass);
+        return limit != null ? limit : classes.getOrDefault(DEFAULT_CLASS, new Limit(50, Duration.ofMinutes(1)));
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Limit {
+        /**
+         * Tokens in a full bucket, i.e. the largest burst allowed
+         */
+        private long capacity;
+
+        /**
+         * Time in which an empty bucket refills completely
+         */
+        private Duration period;
+
+        public Limit(long capacity, Duration period) {
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Route {
+        /**
+         * Path pattern, e.g. {@code /api/mcp/servers/*&#47;tools/call}
+         */
+        private String pattern;
+
+        /**
+         * HTTP method to match; unset matches any
+         */
+        private String method;
+
+        private String routeClass = DEFAULT_CLASS;
+
+        /**
+         * Tokens a matching request takes
+         */
+        private long cost = 1;
+
+        public Route(String pattern, String method, String routeClass, long cost) {
+            this.pattern = pattern;
+            this.method = method;
+            this.routeClass = routeClass;
+            this.cost = cost;
+        }
+    }
+}
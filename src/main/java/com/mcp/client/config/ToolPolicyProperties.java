@@ -0,0 +1,89 @@
+package com.mcp.client.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-tool behaviour, configured as {@code mcp.client.tools.<server-id>.<tool-name>}:
+ *
+ * <pre>
+ * mcp:
+ *   client:
+ *     tools:
+ *       memory-server:
+ *         search_nodes:
+ *           cache-ttl: 60s
+ *         read_graph:
+ *           coalesce: true
+ *         create_entities:
+ *           max-concurrent: 2
+ *           max-queued: 10
+ * </pre>
+ *
+ * Tools without an entry get the defaults of {@link ToolPolicy}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mcp.client")
+public class ToolPolicyProperties {
+
+    private static final ToolPolicy DEFAULT_POLICY = new ToolPolicy();
+
+    private Map<String, Map<String, ToolPolicy>> tools = new HashMap<>();
+
+    public ToolPolicy policyFor(String serverId, String toolName) {
+        Map<String, ToolPolicy> serverTools = tools.get(serverId);
+        if (serverTools == null || toolName == null) {
+            return DEFAULT_POLICY;
+        }
+        return serverTools.getOrDefault(toolName, DEFAULT_POLICY);
+    }
+
+    @Data
+    public static class ToolPolicy {
+        /**
+         * How long a successful result is reused for identical arguments; unset disables caching
+         */
+        private Duration cacheTtl;
+
+        /**
+         * Whether concurrent calls with identical arguments share one upstream
+         * call; defaults to on for cacheable tools only, since other tools may
+         * have side effects that callers expect to happen once per call
+         */
+        private Boolean coalesce;
+
+        /**
+         * Calls of this tool allowed in flight at once, on top of the
+         * server-wide limit; unset or 0 means no per-tool limit
+         */
+        private Integer maxConcurrent;
+
+        /**
+         * Calls waiting for a slot once {@code maxConcurrent} are in flight;
+         * further calls are rejected. Defaults to {@code maxConcurrent}.
+         */
+        private Integer maxQueued;
+
+        public boolean isCacheable() {
+            return cacheTtl != null && !cacheTtl.isZero() && !cacheTtl.isNegative();
+        }
+
+        public boolean isCoalesced() {
+            return coalesce != null ? coalesce : isCacheable();
+        }
+
+        public boolean isBulkheaded() {
+            return maxConcurrent != null && maxConcurrent > 0;
+        }
+
+        public int getQueueLimit() {
+            return maxQueued != null ? Math.max(0, maxQueued) : maxConcurrent;
+        }
+    }
+}
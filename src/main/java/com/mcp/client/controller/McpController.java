@@ -3,14 +3,19 @@ package com.mcp.client.controller;
 import com.mcp.client.entity.ResourceEntity;
 import com.mcp.client.entity.ToolEntity;
 import com.mcp.client.entity.ToolJobEntity;
+import com.mcp.client.exception.McpTimeoutException;
+import com.mcp.client.exception.McpUnavailableException;
 import com.mcp.client.model.*;
 import com.mcp.client.repository.ResourceRepository;
 import com.mcp.client.repository.ToolJobRepository;
 import com.mcp.client.repository.ToolRepository;
 import com.mcp.client.service.McpClientService;
+import com.mcp.client.service.ToolJobQueue;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -22,14 +27,22 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @RestController
@@ -42,6 +55,8 @@ public class McpController {
         private final ToolRepository toolRepository;
         private final ResourceRepository resourceRepository;
         private final ToolJobRepository toolJobRepository;
+        private final ToolJobQueue toolJobQueue;
+        private final ObjectMapper objectMapper;
 
         /**
          * Register a new MCP server
@@ -116,6 +131,50 @@ public class McpController {
                                 "connected", connected));
         }
 
+        /**
+         * Recent stderr output of a server
+         * GET /api/mcp/servers/{serverId}/logs
+         */
+        @Operation(summary = "Get server logs", description = "Return the most recent stderr lines captured from each replica of an MCP server")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Logs retrieved successfully", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"serverId\":\"memory-server\",\"replicas\":[{\"replica\":0,\"lines\":[\"Knowledge Graph MCP Server running on stdio\"]}]}"))),
+                        @ApiResponse(responseCode = "404", description = "Server not found", content = @Content(mediaType = "application/json"))
+        })
+        @GetMapping("/servers/{serverId}/logs")
+        public ResponseEntity<?> getServerLogs(
+                        @Parameter(description = "ID of the server", example = "memory-server") @PathVariable String serverId,
+                        @Parameter(description = "Maximum number of lines per replica", example = "100") @RequestParam(defaultValue = "200") int lines) {
+                try {
+                        List<List<String>> logs = mcpClientService.getServerLogs(serverId, lines);
+                        List<Map<String, Object>> replicas = new ArrayList<>();
+                        for (int i = 0; i < logs.size(); i++) {
+                                replicas.add(Map.of("replica", i, "lines", logs.get(i)));
+                        }
+                        return ResponseEntity.ok(Map.of("serverId", serverId, "replicas", replicas));
+                } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+                }
+        }
+
+        /**
+         * Live notifications from a server
+         * GET /api/mcp/servers/{serverId}/events
+         */
+        @Operation(summary = "Stream server notifications", description = "Server-Sent Events stream of every notification the MCP server sends (progress, logging messages, list_changed, resources/updated). Each event is named after the notification method and carries the JSON-RPC notification as data.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Event stream opened", content = @Content(mediaType = "text/event-stream", examples = @ExampleObject(value = "event:notifications/tools/list_changed\ndata:{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}"))),
+                        @ApiResponse(responseCode = "404", description = "Server not found")
+        })
+        @GetMapping("/servers/{serverId}/events")
+        public ResponseEntity<SseEmitter> serverEvents(
+                        @Parameter(description = "ID of the server", example = "memory-server") @PathVariable String serverId) {
+                try {
+                        return ResponseEntity.ok(mcpClientService.subscribeToServerEvents(serverId));
+                } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+        }
+
         /**
          * List tools from a specific server
          * GET /api/mcp/servers/{serverId}/tools
@@ -138,17 +197,31 @@ public class McpController {
                 }
         }
 
+        /**
+         * Stream tools from a specific server as NDJSON
+         * GET /api/mcp/servers/{serverId}/tools (Accept: application/x-ndjson)
+         */
+        @Operation(summary = "Stream tools from a server", description = "Same as listing tools, but written as newline-delimited JSON (one tool per line) while the server's pages arrive. A failure part-way through ends the stream with an {\"error\":...} line.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Tools streamed", content = @Content(mediaType = "application/x-ndjson", examples = @ExampleObject(value = "{\"name\":\"read_graph\",\"description\":\"Read the entire knowledge graph\",\"inputSchema\":{\"type\":\"object\"}}\n")))
+        })
+        @GetMapping(value = "/servers/{serverId}/tools", produces = MediaType.APPLICATION_NDJSON_VALUE)
+        public ResponseEntity<StreamingResponseBody> streamTools(
+                        @Parameter(description = "ID of the server", example = "memory-server") @PathVariable String serverId) {
+                return this.<McpTool>ndjson(serverId, sink -> mcpClientService.streamTools(serverId, sink));
+        }
+
         /**
          * List tools from all servers
          * GET /api/mcp/tools
          */
-        @Operation(summary = "List tools from all servers", description = "Get all available tools from all registered MCP servers")
+        @Operation(summary = "List tools from all servers", description = "Query all registered MCP servers in parallel; each entry carries the server's status (ok, timeout or error), latency and tools")
         @ApiResponses(value = {
-                        @ApiResponse(responseCode = "200", description = "Tools from all servers retrieved successfully", content = @Content(mediaType = "application/json"))
+                        @ApiResponse(responseCode = "200", description = "Tools from all servers that answered before the deadline", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"memory-server\":{\"status\":\"ok\",\"latencyMs\":12,\"items\":[]},\"slow-server\":{\"status\":\"timeout\",\"latencyMs\":10000,\"error\":\"No answer within 10000 ms\"}}")))
         })
         @GetMapping("/tools")
-        public ResponseEntity<Map<String, List<McpTool>>> listAllTools() {
-                return ResponseEntity.ok(mcpClientService.listAllTools());
+        public CompletableFuture<ResponseEntity<Map<String, ServerListResult<McpTool>>>> listAllTools() {
+                return mcpClientService.listAllTools().thenApply(ResponseEntity::ok);
         }
 
         /**
@@ -158,23 +231,112 @@ public class McpController {
         @Operation(summary = "Call a tool", description = "Invoke a specific tool on an MCP server with the provided arguments")
         @ApiResponses(value = {
                         @ApiResponse(responseCode = "200", description = "Tool executed successfully", content = @Content(mediaType = "application/json")),
-                        @ApiResponse(responseCode = "500", description = "Tool execution failed", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\":\"Tool not found: invalid_tool\"}")))
+                        @ApiResponse(responseCode = "500", description = "Tool execution failed", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\":\"Tool not found: invalid_tool\"}"))),
+                        @ApiResponse(responseCode = "503", description = "MCP server keeps failing to restart, or the server's or tool's wait queue is full; retry after the Retry-After header", content = @Content(mediaType = "application/json")),
+                        @ApiResponse(responseCode = "504", description = "MCP server did not answer before the request timeout", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\":\"Request 'tools/call' to MCP server memory-server timed out after 30000 ms\"}")))
         })
         @PostMapping("/servers/{serverId}/tools/call")
-        public ResponseEntity<?> callTool(
+        public CompletableFuture<ResponseEntity<?>> callTool(
                         @Parameter(description = "ID of the server", example = "memory-server") @PathVariable String serverId,
-                        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Tool call request with tool name and arguments", required = true, content = @Content(schema = @Schema(implementation = ToolCallRequest.class), examples = @ExampleObject(name = "Store Memory", value = "{\"name\":\"store_memory\",\"arguments\":{\"key\":\"user_name\",\"value\":\"John Doe\"}}"))) @RequestBody ToolCallRequest request) {
-                try {
-                        JsonNode result = mcpClientService.callTool(
-                                        serverId,
-                                        request.getName(),
-                                        request.getArguments());
-                        return ResponseEntity.ok(result);
-                } catch (IOException e) {
-                        log.error("Failed to call tool: {}", e.getMessage(), e);
+                        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Tool call request with tool name and arguments", required = true, content = @Content(schema = @Schema(implementation = ToolCallRequest.class), examples = @ExampleObject(name = "Store Memory", value = "{\"name\":\"store_memory\",\"arguments\":{\"key\":\"user_name\",\"value\":\"John Doe\"}}"))) @RequestBody byte[] request,
+                        @Parameter(description = "Send no-cache to skip the result cache of cacheable tools", example = "no-cache") @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+                // Arguments and result are passed through as JSON bytes, and the
+                // servlet thread is released while the MCP server works on the call
+                boolean bypassCache = cacheControl != null && cacheControl.contains("no-cache");
+                return mcpClientService.callToolRawAsync(serverId, request, bypassCache)
+                                .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok()
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .body(result))
+                                .exceptionally(this::toolCallFailed);
+        }
+
+        /**
+         * Call several tools on a specific server in one round trip
+         * POST /api/mcp/servers/{serverId}/tools/call/batch
+         */
+        @Operation(summary = "Call tools in a batch", description = "Invoke several tools on an MCP server with one JSON-RPC batch (or pipelined write) and return the results in request order")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Batch executed; each entry holds either a result or an error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ToolCallResult.class))),
+                        @ApiResponse(responseCode = "400", description = "Empty batch or batch larger than mcp.client.max-batch-size", content = @Content(mediaType = "application/json")),
+                        @ApiResponse(responseCode = "500", description = "Server not found or not connected", content = @Content(mediaType = "application/json"))
+        })
+        @PostMapping("/servers/{serverId}/tools/call/batch")
+        public CompletableFuture<ResponseEntity<?>> callToolsBatch(
+                        @Parameter(description = "ID of the server", example = "memory-server") @PathVariable String serverId,
+                        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Tool calls to execute, in order", required = true, content = @Content(examples = @ExampleObject(name = "Two Lookups", value = "[{\"name\":\"search_nodes\",\"arguments\":{\"query\":\"alice\"}},{\"name\":\"search_nodes\",\"arguments\":{\"query\":\"bob\"}}]"))) @RequestBody List<ToolCallRequest> calls) {
+                return mcpClientService.callToolsAsync(serverId, calls)
+                                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                                .exceptionally(this::toolCallFailed);
+        }
+
+        private <T> ResponseEntity<StreamingResponseBody> ndjson(String serverId, CatalogStream<T> stream) {
+                if (!mcpClientService.isServerConnected(serverId)) {
+                        String message = "Server not connected: " + serverId;
                         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                        .body(Map.of("error", e.getMessage()));
+                                        .contentType(MediaType.APPLICATION_NDJSON)
+                                        .body(out -> writeJsonLine(out, Map.of("error", message)));
                 }
+
+                return ResponseEntity.ok()
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .body(out -> {
+                                        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                                        generator.setRootValueSeparator(null);
+                                        ObjectWriter writer = objectMapper.writer()
+                                                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                                        try {
+                                                stream.writeTo(items -> {
+                                                        for (T item : items) {
+                                                                writer.writeValue(generator, item);
+                                                                generator.writeRaw('\n');
+                                                        }
+                                                        generator.flush();
+                                                });
+                                        } catch (IOException e) {
+                                                log.error("Failed to stream catalog of {}: {}", serverId, e.getMessage());
+                                                writer.writeValue(generator, Map.of("error", e.getMessage()));
+                                                generator.writeRaw('\n');
+                                        }
+                                        generator.flush();
+                                });
+        }
+
+        private void writeJsonLine(OutputStream out, Object value) throws IOException {
+                out.write(objectMapper.writeValueAsBytes(value));
+                out.write('\n');
+        }
+
+        @FunctionalInterface
+        private interface CatalogStream<T> {
+                void writeTo(McpClientService.PageSink<T> sink) throws IOException;
+        }
+
+        private ResponseEntity<?> toolCallFailed(Throwable error) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error;
+                if (cause instanceof McpTimeoutException) {
+                        log.warn("Tool call timed out: {}", cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                                        .body(Map.of("error", cause.getMessage()));
+                }
+                if (cause instanceof McpUnavailableException unavailable) {
+                        log.warn("Tool call rejected: {}", cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                        .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(unavailable))
+                                        .body(Map.of("error", cause.getMessage()));
+                }
+                if (cause instanceof IllegalArgumentException) {
+                        // A malformed body is only noticed once the call reaches a replica
+                        return ResponseEntity.badRequest().body(Map.of("error", cause.getMessage()));
+                }
+                log.error("Failed to call tool: {}", cause.getMessage(), cause);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(Map.of("error", String.valueOf(cause.getMessage())));
+        }
+
+        private static String retryAfterSeconds(McpUnavailableException e) {
+                return String.valueOf(Math.max(1, e.getRetryAfter().toSeconds()));
         }
 
         /**
@@ -199,17 +361,76 @@ public class McpController {
                 }
         }
 
+        /**
+         * Stream resources from a specific server as NDJSON
+         * GET /api/mcp/servers/{serverId}/resources (Accept: application/x-ndjson)
+         */
+        @Operation(summary = "Stream resources from a server", description = "Same as listing resources, but written as newline-delimited JSON (one resource per line) while the server's pages arrive. A failure part-way through ends the stream with an {\"error\":...} line.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Resources streamed", content = @Content(mediaType = "application/x-ndjson"))
+        })
+        @GetMapping(value = "/servers/{serverId}/resources", produces = MediaType.APPLICATION_NDJSON_VALUE)
+        public ResponseEntity<StreamingResponseBody> streamResources(
+                        @Parameter(description = "ID of the server", example = "filesystem-server") @PathVariable String serverId) {
+                return this.<McpResource>ndjson(serverId, sink -> mcpClientService.streamResources(serverId, sink));
+        }
+
+        /**
+         * Read the contents of a resource
+         * GET /api/mcp/servers/{serverId}/resources/content?uri=...
+         */
+        @Operation(summary = "Read a resource", description = "Fetch a resource with resources/read and return its decoded contents (text or base64 blob) as the response body, using the resource's MIME type. Small contents are served from an in-memory cache until the server reports an update.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Resource contents"),
+                        @ApiResponse(responseCode = "500", description = "Failed to read the resource", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\"error\":\"Failed to read resource: Resource not found\"}"))),
+                        @ApiResponse(responseCode = "503", description = "MCP server keeps failing to restart, or its wait queue is full; retry after the Retry-After header", content = @Content(mediaType = "application/json")),
+                        @ApiResponse(responseCode = "504", description = "MCP server did not answer before the request timeout", content = @Content(mediaType = "application/json"))
+        })
+        @GetMapping("/servers/{serverId}/resources/content")
+        public ResponseEntity<StreamingResponseBody> readResource(
+                        @Parameter(description = "ID of the server", example = "filesystem-server") @PathVariable String serverId,
+                        @Parameter(description = "URI of the resource", example = "file:///tmp/notes.txt") @RequestParam String uri) {
+                McpClientService.ResourceContent content;
+                try {
+                        content = mcpClientService.readResource(serverId, uri);
+                } catch (IOException e) {
+                        log.error("Failed to read resource {}: {}", uri, e.getMessage());
+                        HttpStatus status = e instanceof McpTimeoutException ? HttpStatus.GATEWAY_TIMEOUT
+                                        : e instanceof McpUnavailableException ? HttpStatus.SERVICE_UNAVAILABLE
+                                        : HttpStatus.INTERNAL_SERVER_ERROR;
+                        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+                        if (e instanceof McpUnavailableException unavailable) {
+                                response.header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(unavailable));
+                        }
+                        return response
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(out -> writeJsonLine(out, Map.of("error", e.getMessage())));
+                }
+
+                MediaType mediaType;
+                try {
+                        mediaType = MediaType.parseMediaType(content.getMimeType());
+                } catch (InvalidMediaTypeException e) {
+                        mediaType = MediaType.APPLICATION_OCTET_STREAM;
+                }
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(mediaType);
+                if (content.getContentLength() != null) {
+                        response.contentLength(content.getContentLength());
+                }
+                return response.body(content::writeTo);
+        }
+
         /**
          * List resources from all servers
          * GET /api/mcp/resources
          */
-        @Operation(summary = "List resources from all servers", description = "Get all available resources from all registered MCP servers")
+        @Operation(summary = "List resources from all servers", description = "Query all registered MCP servers in parallel; each entry carries the server's status (ok, timeout or error), latency and resources")
         @ApiResponses(value = {
-                        @ApiResponse(responseCode = "200", description = "Resources from all servers retrieved successfully", content = @Content(mediaType = "application/json"))
+                        @ApiResponse(responseCode = "200", description = "Resources from all servers that answered before the deadline", content = @Content(mediaType = "application/json"))
         })
         @GetMapping("/resources")
-        public ResponseEntity<Map<String, List<McpResource>>> listAllResources() {
-                return ResponseEntity.ok(mcpClientService.listAllResources());
+        public CompletableFuture<ResponseEntity<Map<String, ServerListResult<McpResource>>>> listAllResources() {
+                return mcpClientService.listAllResources().thenApply(ResponseEntity::ok);
         }
 
         /**
@@ -267,16 +488,9 @@ public class McpController {
                         @PathVariable String serverId,
                         @RequestBody ToolCallRequest request) throws JsonProcessingException {
                 try {
-                        ToolJobEntity job = ToolJobEntity.builder()
-                                        .serverId(serverId)
-                                        .toolName(request.getName())
-                                        .argumentsJson(new ObjectMapper().writeValueAsString(request.getArguments()))
-                                        .status(ToolJobEntity.Status.PENDING)
-                                        .createdAt(LocalDateTime.now())
-                                        .build();
-
-                        job = toolJobRepository.save(job);
-                        mcpClientService.executeToolJob(job);
+                        // Stored as PENDING and run by the job queue's workers; 503 when the queue is full
+                        ToolJobEntity job = toolJobQueue.submit(serverId, request.getName(),
+                                        objectMapper.writeValueAsString(request.getArguments()));
 
                         return ResponseEntity.ok(Map.of("jobId", job.getId(), "status", job.getStatus()));
                 } catch (JsonProcessingException e) {
@@ -291,6 +505,25 @@ public class McpController {
                 return ResponseEntity.of(toolJobRepository.findById(id));
         }
 
+        /**
+         * Live status of a job
+         * GET /api/mcp/jobs/{id}/stream
+         */
+        @Operation(summary = "Stream job progress", description = "Server-Sent Events stream of a tool job: \"status\" events with the job's state and \"progress\" events with the MCP server's progress notifications. The stream closes once the job has finished.")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "Event stream opened", content = @Content(mediaType = "text/event-stream", examples = @ExampleObject(value = "event:progress\ndata:{\"progressToken\":\"job-42\",\"progress\":3,\"total\":10}"))),
+                        @ApiResponse(responseCode = "404", description = "Job not found")
+        })
+        @GetMapping("/jobs/{id}/stream")
+        public ResponseEntity<SseEmitter> streamJob(
+                        @Parameter(description = "ID of the job", example = "42") @PathVariable Long id) {
+                try {
+                        return ResponseEntity.ok(mcpClientService.subscribeToJob(id));
+                } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+        }
+
         @GetMapping("/jobs")
         public ResponseEntity<List<ToolJobEntity>> listJobs(
                         @RequestParam(required = false) String serverId) {
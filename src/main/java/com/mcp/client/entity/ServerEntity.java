@@ -23,12 +23,16 @@ public class ServerEntity {
 
     private String workingDirectory;
 
+    private Integer replicas;
+
+    private Boolean batchRequests;
+
     @Enumerated(EnumType.STRING)
     private Status status;
 
     private LocalDateTime lastConnected;
 
     public enum Status {
-        CONNECTED, DISCONNECTED, FAILED
+        RESTORING, CONNECTED, IDLE, RECONNECTING, CIRCUIT_OPEN, DISCONNECTED, FAILED
     }
 }
@@ -24,6 +24,10 @@ public class ToolEntity {
     @Column(length = 4000)
     private String inputSchema; // JSON string for schema
 
+    // SHA-256 of the description and schema, to detect changed tools without comparing the JSON
+    @Column(length = 64)
+    private String schemaHash;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "server_id")
     private ServerEntity server;
@@ -5,7 +5,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tool_jobs")
+@Table(name = "tool_jobs", indexes = @Index(name = "ix_tool_jobs_status", columnList = "status, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +31,12 @@ public class ToolJobEntity {
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
 
+    // Set while a worker holds the job; an expired lease means the worker died and the job can be retried
+    @Column(length = 100)
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    private Integer attempts;
+
     public enum Status {
         PENDING, RUNNING, SUCCESS, FAILED
     }
@@ -0,0 +1,21 @@
+package com.mcp.client.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a tool job is submitted while the job queue is at its limit;
+ * the client should retry after {@link #getRetryAfter()}.
+ */
+public class JobQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public JobQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,13 @@
+package com.mcp.client.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an MCP server does not answer a request before its deadline.
+ */
+public class McpTimeoutException extends IOException {
+
+    public McpTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.mcp.client.exception;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown without contacting an MCP server that cannot take the call right
+ * now: its circuit breaker is open because its process keeps failing to
+ * restart, or the wait queue of the server or tool is full. The client
+ * should retry after {@link #getRetryAfter()}.
+ */
+public class McpUnavailableException extends IOException {
+
+    private final Duration retryAfter;
+
+    public McpUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,26 +1,121 @@
 package com.mcp.client.filter;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mcp.client.config.RateLimitProperties;
+import com.mcp.client.security.JwtService;
+
 import io.github.bucket4j.*;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
 import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
 import java.io.IOException;
-import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Limits requests per caller and route class with token buckets.
+ * <p>
+ * Runs right before the Spring Security filter chain, so requests that
+ * security rejects, such as ones with invalid tokens, are limited too.
+ * Requests carrying a token that {@link JwtService} has already verified are
+ * keyed by its user; everything else, including a token's first use, is keyed
+ * by client address.
+ * Buckets live in a size-bounded cache and are dropped after being idle for
+ * a while; taking tokens is a lock-free compare-and-set on the caller's own
+ * bucket. Responses carry {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining}
+ * and {@code X-RateLimit-Reset} (seconds until the bucket is full again), plus
+ * {@code Retry-After} when the request is rejected.
+ */
 @Component
-public class RateLimitFilter implements Filter {
-    private final Bucket bucket = Bucket4j.builder()
-            .addLimit(Bandwidth.simple(50, Duration.ofMinutes(1)))
-            .build();
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final JwtService jwtService;
+    private final List<CompiledRoute> routes;
+    private final Cache<BucketKey, Bucket> buckets;
+
+    public RateLimitFilter(RateLimitProperties properties, JwtService jwtService) {
+        this.properties = properties;
+        this.jwtService = jwtService;
+        this.routes = properties.getRoutes().stream()
+                .map(route -> new CompiledRoute(PathPatternParser.defaultInstance.parse(route.getPattern()),
+                        route.getMethod(), route.getRouteClass(), route.getCost()))
+                .toList();
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getBucketIdleTimeout())
+                .build();
+    }
 
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
-            throws IOException, ServletException {
-        if (bucket.tryConsume(1)) {
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String routeClass = RateLimitProperties.DEFAULT_CLASS;
+        long cost = 1;
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (CompiledRoute route : routes) {
+            if (route.matches(request.getMethod(), path)) {
+                routeClass = route.routeClass();
+                cost = route.cost();
+                break;
+            }
+        }
+
+        RateLimitProperties.Limit limit = properties.limitOf(routeClass);
+        Bucket bucket = buckets.get(new BucketKey(caller(request), routeClass), key -> Bucket4j.builder()
+                .addLimit(Bandwidth.simple(limit.getCapacity(), limit.getPeriod()))
+                .build());
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(cost);
+
+        response.setHeader("X-RateLimit-Limit", String.valueOf(limit.getCapacity()));
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+        response.setHeader("X-RateLimit-Reset", String.valueOf(toSeconds(probe.getNanosToWaitForReset())));
+        if (probe.isConsumed()) {
             chain.doFilter(request, response);
         } else {
-            ((HttpServletResponse) response).setStatus(429);
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(probe.getNanosToWaitForRefill())));
             response.getWriter().write("Rate limit exceeded");
         }
     }
+
+    private String caller(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            JwtService.VerifiedToken verified = jwtService.peek(authHeader.substring(7));
+            if (verified != null) {
+                return "user:" + verified.getUser().getUsername();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private record BucketKey(String caller, String routeClass) {
+    }
+
+    private record CompiledRoute(PathPattern pattern, String method, String routeClass, long cost) {
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pattern.matches(path);
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package com.mcp.client.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a {@code tools/list} or {@code resources/list} result;
+ * {@code nextCursor} is null on the last page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
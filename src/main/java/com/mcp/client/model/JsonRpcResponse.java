@@ -1,6 +1,8 @@
 package com.mcp.client.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -10,7 +12,11 @@ import lombok.NoArgsConstructor;
 public class JsonRpcResponse {
     private String jsonrpc = "2.0";
     private Object id;
-    private Object result;
+    private String method; // set on notifications and requests sent by the server
+    private JsonNode params;
+    private JsonNode result;
+    @JsonIgnore
+    private byte[] rawResult; // undecoded result bytes, only set for passthrough calls
     private JsonRpcError error;
 
     @Data
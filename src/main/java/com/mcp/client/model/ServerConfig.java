@@ -13,4 +13,6 @@ public class ServerConfig {
     private String command;
     private List<String> args;
     private String workingDirectory;
+    private Integer replicas; // number of server processes to run; defaults to mcp.client.default-replicas
+    private Boolean batchRequests; // send multi-call requests as JSON-RPC batch arrays instead of pipelining
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.mcp.client.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One server's share of a listing fanned out to every registered server
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ServerListResult<T> {
+
+    public static final String OK = "ok";
+    public static final String TIMEOUT = "timeout";
+    public static final String ERROR = "error";
+    /** A stopped lazy server with no cached catalog; it is not started just to be listed */
+    public static final String IDLE = "idle";
+
+    private String status;
+    private long latencyMs;
+    private List<T> items;
+    private String error;
+}
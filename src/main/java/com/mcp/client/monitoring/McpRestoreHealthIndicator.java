@@ -0,0 +1,54 @@
+package com.mcp.client.monitoring;
+
+import com.mcp.client.service.McpClientService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.*;
+import org.springframework.stereotype.Component;
+
+/**
+ * Readiness of the client after startup: RESTORING until at least
+ * {@code mcp.client.readiness-quorum} (a fraction) of the servers restored
+ * from the database are connected, UP from then on. Part of the
+ * {@code readiness} health group, so traffic is only routed here once enough
+ * servers are available; later disconnects are reported by
+ * {@link McpServersHealthIndicator} instead.
+ * <p>
+ * RESTORING is a custom status that only the readiness group's status order
+ * ranks below UP (and maps to 503). The root health endpoint ignores
+ * statuses missing from its order, so an ongoing restore does not take the
+ * whole application out of service there.
+ */
+@Component
+public class McpRestoreHealthIndicator implements HealthIndicator {
+
+    public static final Status RESTORING = new Status("RESTORING", "Restoring MCP servers from the database");
+
+    private final McpClientService service;
+
+    @Value("${mcp.client.readiness-quorum:0.5}")
+    private double quorum;
+
+    private volatile boolean ready;
+
+    public McpRestoreHealthIndicator(McpClientService service) {
+        this.service = service;
+    }
+
+    @Override
+    public Health health() {
+        McpClientService.RestoreProgress progress = service.getRestoreProgress();
+        long required = (long) Math.ceil(quorum * progress.total());
+        if (progress.connected() >= required) {
+            ready = true;
+        }
+
+        Health.Builder builder = ready ? Health.up() : Health.status(RESTORING);
+        return builder
+                .withDetail("restoredServers", progress.connected())
+                .withDetail("restoringServers", progress.restoring())
+                .withDetail("failedServers", progress.failed())
+                .withDetail("totalServers", progress.total())
+                .withDetail("requiredServers", required)
+                .build();
+    }
+}
@@ -1,9 +1,14 @@
 package com.mcp.client.monitoring;
 
+import com.mcp.client.entity.ServerEntity;
 import com.mcp.client.service.McpClientService;
 import org.springframework.boot.actuate.health.*;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 public class McpServersHealthIndicator implements HealthIndicator {
 
@@ -15,15 +20,23 @@ public class McpServersHealthIndicator implements HealthIndicator {
 
     @Override
     public Health health() {
-        long connected = service.listServers().stream().filter(s -> s.isConnected()).count();
-        long total = service.listServers().size();
+        List<McpClientService.ServerInfo> servers = service.listServers();
+        long connected = servers.stream().filter(s -> s.isConnected()).count();
+        // Lazily started servers that are not running are healthy until a start fails
+        long idle = servers.stream().filter(s -> s.getStatus() == ServerEntity.Status.IDLE).count();
+        long total = servers.size();
 
-        if (connected == total && total > 0)
-            return Health.up().withDetail("connectedServers", connected).withDetail("totalServers", total).build();
+        Map<String, Object> replicas = new LinkedHashMap<>();
+        for (McpClientService.ServerInfo server : servers) {
+            replicas.put(server.getId(), server.getReplicas());
+        }
 
-        return Health.down()
+        Health.Builder builder = connected + idle == total && total > 0 ? Health.up() : Health.down();
+        return builder
                 .withDetail("connectedServers", connected)
+                .withDetail("idleServers", idle)
                 .withDetail("totalServers", total)
+                .withDetail("replicas", replicas)
                 .build();
     }
 }
@@ -1,9 +1,71 @@
 package com.mcp.client.repository;
 
 import com.mcp.client.entity.ToolJobEntity;
+import com.mcp.client.entity.ToolJobEntity.Status;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ToolJobRepository extends JpaRepository<ToolJobEntity, Long> {
     List<ToolJobEntity> findByServerId(String serverId);
+
+    long countByStatus(Status status);
+
+    List<ToolJobEntity> findByStatusOrderByIdAsc(Status status, Pageable page);
+
+    /**
+     * Take a pending job for {@code owner}; the status check makes this a
+     * compare-and-set, so of several workers racing for a job exactly one gets 1
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ToolJobEntity j set j.status = :running, j.leaseOwner = :owner, j.leaseExpiresAt = :until, "
+            + "j.attempts = coalesce(j.attempts, 0) + 1 where j.id = :id and j.status = :pending")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("until") LocalDateTime until,
+            @Param("pending") Status pending, @Param("running") Status running);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ToolJobEntity j set j.leaseExpiresAt = :until where j.leaseOwner = :owner and j.status = :running")
+    int renewLeases(@Param("owner") String owner, @Param("until") LocalDateTime until,
+            @Param("running") Status running);
+
+    /**
+     * Move {@code owner}'s running jobs to {@code status}, e.g. back to PENDING when the worker shuts down
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ToolJobEntity j set j.status = :status, j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "where j.leaseOwner = :owner and j.status = :running")
+    int releaseLeases(@Param("owner") String owner, @Param("running") Status running, @Param("status") Status status);
+
+    /**
+     * Running jobs whose worker stopped renewing the lease (or that predate
+     * leases) and have fewer than {@code maxAttempts} attempts go back to PENDING
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ToolJobEntity j set j.status = :pending, j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "where j.status = :running and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now) "
+            + "and coalesce(j.attempts, 0) < :maxAttempts")
+    int requeueExpired(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+            @Param("running") Status running, @Param("pending") Status pending);
+
+    /**
+     * Running jobs with an expired lease and no attempts left are failed with {@code result}
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ToolJobEntity j set j.status = :failed, j.resultJson = :result, j.completedAt = :now, "
+            + "j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "where j.status = :running and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now) "
+            + "and coalesce(j.attempts, 0) >= :maxAttempts")
+    int failExpired(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+            @Param("result") String result, @Param("running") Status running, @Param("failed") Status failed);
 }
@@ -1,26 +1,104 @@
 package com.mcp.client.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mcp.client.entity.UserEntity;
+import com.mcp.client.repository.UserRepository;
+
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Issues and verifies JWTs.
+ * <p>
+ * Requests are authenticated from the signed {@code sub} and {@code role}
+ * claims alone, without loading the user. Verified tokens are kept in a
+ * bounded cache until they expire, so a client reusing its token costs one
+ * map lookup per request; tokens without an expiry are kept for
+ * {@code security.jwt.unexpiring-token-cache-ttl}. With {@code security.jwt.revocation-check} on, the
+ * user behind each cached token is looked up in the background every
+ * {@code security.jwt.revocation-check-interval}; tokens of users that were
+ * deleted or whose role changed are rejected from then on.
+ */
+@Slf4j
 @Service
 public class JwtService {
 
     private final Key key;
     private final long expirationMillis;
+    // Immutable and thread-safe, so one parser serves every request
+    private final JwtParser parser;
+    private final UserRepository userRepository;
+    private final boolean revocationCheck;
+    private final Duration revocationCheckInterval;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final ExecutorService revocationChecks = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("jwt-revocation-check").daemon().factory());
 
     public JwtService(
             @Value("${security.jwt.secret}") String secret,
-            @Value("${security.jwt.expiration-minutes}") long expirationMinutes) {
+            @Value("${security.jwt.expiration-minutes}") long expirationMinutes,
+            @Value("${security.jwt.token-cache-size:10000}") long tokenCacheSize,
+            @Value("${security.jwt.unexpiring-token-cache-ttl:5m}") Duration unexpiringTokenTtl,
+            @Value("${security.jwt.revocation-check:false}") boolean revocationCheck,
+            @Value("${security.jwt.revocation-check-interval:5m}") Duration revocationCheckInterval,
+            UserRepository userRepository,
+            MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationMillis = Duration.ofMinutes(expirationMinutes).toMillis();
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.userRepository = userRepository;
+        this.revocationCheck = revocationCheck;
+        this.revocationCheckInterval = revocationCheckInterval;
+        this.verifiedTokens = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(tokenCacheSize)
+                        .expireAfter(new Expiry<String, VerifiedToken>() {
+                            @Override
+                            public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                                if (verified.getExpiresAt() == null) {
+                                    return unexpiringTokenTtl.toNanos();
+                                }
+                                return Math.max(0, Duration.between(Instant.now(), verified.getExpiresAt()).toNanos());
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime,
+                                    long currentDuration) {
+                                return currentDuration;
+                            }
+
+                            @Override
+                            public long expireAfterRead(String token, VerifiedToken verified, long currentTime,
+                                    long currentDuration) {
+                                return currentDuration;
+                            }
+                        })
+                        .recordStats()
+                        .<String, VerifiedToken>build(),
+                "security.jwt.tokens");
     }
 
     public String generateToken(String username, String role) {
@@ -34,6 +112,115 @@ public class JwtService {
     }
 
     public Jws<Claims> validateToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
+    }
+
+    /**
+     * The user a token was issued to, verifying its signature and expiry
+     * unless the token was verified before
+     *
+     * @throws JwtException if the token is invalid, expired or revoked
+     */
+    public VerifiedToken verify(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            Claims claims = validateToken(token).getBody();
+            verified = new VerifiedToken(claims.getSubject(), authority(claims.get("role", String.class)),
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+            verifiedTokens.put(token, verified);
+        }
+        if (verified.isRevoked()) {
+            throw new JwtException("Token has been revoked");
+        }
+        if (revocationCheck) {
+            scheduleRevocationCheck(verified);
+        }
+        return verified;
+    }
+
+    /**
+     * The user of a token that was already verified and is still valid, or
+     * null; never parses the token, so it is cheap enough to run before
+     * authentication on every request
+     */
+    public VerifiedToken peek(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        return verified != null && !verified.isRevoked() ? verified : null;
+    }
+
+    private void scheduleRevocationCheck(VerifiedToken verified) {
+        long now = System.nanoTime();
+        long due = verified.nextCheckAt.get();
+        // Only the caller that moves the deadline on submits the check
+        if (now - due >= 0 && verified.nextCheckAt.compareAndSet(due, now + revocationCheckInterval.toNanos())) {
+            revocationChecks.execute(() -> checkRevoked(verified));
+        }
+    }
+
+    private void checkRevoked(VerifiedToken verified) {
+        try {
+            Optional<UserEntity> user = userRepository.findByUsername(verified.getUser().getUsername());
+            String currentRole = user.map(u -> authority(u.getRole())).orElse(null);
+            if (currentRole == null || !currentRole.equals(verified.getRole())) {
+                log.info("Revoking token of {}: user {}", verified.getUser().getUsername(),
+                        user.isEmpty() ? "no longer exists" : "now has role " + currentRole);
+                verified.revoked = true;
+            }
+        } catch (RuntimeException e) {
+            // Tokens stay valid while the check cannot run
+            log.warn("Revocation check for {} failed: {}", verified.getUser().getUsername(), e.getMessage());
+        }
+    }
+
+    /**
+     * Role names as granted authorities; login issues tokens whose role
+     * already carries the {@code ROLE_} prefix
+     */
+    private static String authority(String role) {
+        if (role == null) {
+            return null;
+        }
+        return role.startsWith("ROLE_") ? role : "ROLE_" + role;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        revocationChecks.shutdownNow();
+    }
+
+    /**
+     * A token whose signature and expiry have been checked
+     */
+    public static class VerifiedToken {
+        private final UserDetails user;
+        private final String role;
+        private final Instant expiresAt;
+        private final AtomicLong nextCheckAt = new AtomicLong(System.nanoTime());
+        private volatile boolean revoked;
+
+        VerifiedToken(String username, String role, Instant expiresAt) {
+            this.user = User.withUsername(username)
+                    .password("")
+                    .authorities(role != null ? List.of(new SimpleGrantedAuthority(role)) : List.of())
+                    .build();
+            this.role = role;
+            this.expiresAt = expiresAt;
+        }
+
+        public UserDetails getUser() {
+            return user;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isRevoked() {
+            return revoked;
+        }
     }
 }
@@ -0,0 +1,199 @@
+package com.mcp.client.service;
+
+import com.mcp.client.exception.McpTimeoutException;
+import com.mcp.client.exception.McpUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caps the calls in flight to one server or tool, with a bounded queue of
+ * callers waiting for a slot.
+ * <p>
+ * Waiting does not hold a thread: {@link #acquireAsync} returns a future that
+ * completes when a slot is handed over. Waiting callers are served in arrival
+ * order for up to {@code maxWait}, after which they fail with
+ * {@link McpTimeoutException}. A caller arriving while the queue is full is
+ * turned away at once with {@link McpUnavailableException}.
+ * <p>
+ * Exported as {@code <prefix>.active}, {@code <prefix>.queued},
+ * {@code <prefix>.wait} and {@code <prefix>.rejected}.
+ */
+public class Bulkhead {
+
+    // Suggested wait for callers turned away by a full queue
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration maxWait;
+    // Guards available and waiters
+    private final Object lock = new Object();
+    private int available;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final MeterRegistry meterRegistry;
+    private final List<Gauge> gauges;
+    private final Timer waitTime;
+    private final Counter rejected;
+
+    /**
+     * @param name   what is being protected, for error messages, e.g. "MCP server memory-server"
+     * @param prefix metric name prefix
+     */
+    public Bulkhead(String name, int maxConcurrent, int maxQueued, Duration maxWait, MeterRegistry meterRegistry,
+            String prefix, Tags tags) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.available = maxConcurrent;
+        this.meterRegistry = meterRegistry;
+        this.gauges = List.of(
+                Gauge.builder(prefix + ".active", this, Bulkhead::active)
+                        .description("Calls in flight")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder(prefix + ".queued", this, Bulkhead::queued)
+                        .description("Calls waiting for a free slot")
+                        .tags(tags)
+                        .register(meterRegistry));
+        this.waitTime = Timer.builder(prefix + ".wait")
+                .description("Time calls waited for a free slot")
+                .tags(tags)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(prefix + ".rejected")
+                .description("Calls turned away because the wait queue was full")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a slot; the future completes once one is free, and every
+     * successful acquisition must be paired with {@link #release}. It fails
+     * with {@link McpUnavailableException} if the queue is full, or with
+     * {@link McpTimeoutException} if no slot frees up within the maximum wait.
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        return acquireAsync(1, maxWait);
+    }
+
+    /**
+     * Take {@code permits} slots at once, e.g. for a batch of calls, waiting
+     * at most {@code maxWait}; give them back with {@link #release(int)}.
+     * Slots are granted in arrival order, so a large request is not overtaken
+     * by smaller ones forever.
+     */
+    public CompletableFuture<Void> acquireAsync(int permits, Duration maxWait) {
+        if (permits > maxConcurrent) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(name + " allows at most "
+                    + maxConcurrent + " calls at once, " + permits + " requested"));
+        }
+        Waiter waiter;
+        synchronized (lock) {
+            if (waiters.isEmpty() && available >= permits) {
+                available -= permits;
+                waitTime.record(0, TimeUnit.NANOSECONDS);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiters.size() >= maxQueued) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(new McpUnavailableException(name + " is busy: "
+                        + maxConcurrent + " calls in flight and " + maxQueued + " waiting", RETRY_AFTER));
+            }
+            waiter = new Waiter(new CompletableFuture<>(), permits);
+            waiters.add(waiter);
+        }
+
+        long start = System.nanoTime();
+        // Mapped after the waiter has left the queue, so a caller that sees the timeout also sees its place freed
+        return waiter.future().orTimeout(maxWait.toNanos(), TimeUnit.NANOSECONDS).whenComplete((ignored, error) -> {
+            waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                List<Waiter> granted;
+                synchronized (lock) {
+                    // A waiter at the head may have held back smaller ones behind it
+                    granted = waiters.remove(waiter) ? grant() : List.of();
+                }
+                handOver(granted);
+            }
+        }).exceptionallyCompose(error -> {
+            Throwable cause = McpServerPool.unwrap(error);
+            return CompletableFuture.failedFuture(cause instanceof TimeoutException
+                    ? new McpTimeoutException("Timed out after " + maxWait.toMillis()
+                            + " ms waiting for a free request slot on " + name)
+                    : cause);
+        });
+    }
+
+    public void release() {
+        release(1);
+    }
+
+    public void release(int permits) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            available += permits;
+            granted = grant();
+        }
+        handOver(granted);
+    }
+
+    /**
+     * Take the slots of every waiter at the head of the queue that now fits;
+     * called with the lock held
+     */
+    private List<Waiter> grant() {
+        List<Waiter> granted = new ArrayList<>();
+        while (!waiters.isEmpty() && waiters.peek().permits() <= available) {
+            Waiter waiter = waiters.poll();
+            available -= waiter.permits();
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private void handOver(List<Waiter> granted) {
+        for (Waiter waiter : granted) {
+            // Give the slots back if the waiter has just timed out
+            if (!waiter.future().complete(null)) {
+                release(waiter.permits());
+            }
+        }
+    }
+
+    private int active() {
+        synchronized (lock) {
+            return maxConcurrent - available;
+        }
+    }
+
+    private int queued() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    /**
+     * Unregister the gauges, which would otherwise keep reporting this
+     * instance after a replacement with the same tags is created
+     */
+    public void close() {
+        gauges.forEach(meterRegistry::remove);
+    }
+
+    private record Waiter(CompletableFuture<Void> future, int permits) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashes JSON values so that equal values hash the same regardless of object
+ * field order or number spelling; used to recognize identical requests.
+ */
+final class CanonicalJson {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private CanonicalJson() {
+    }
+
+    /**
+     * Hex SHA-256 of the canonical form of {@code node}; null and missing hash like JSON null
+     */
+    static String sha256(JsonNode node) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (JsonGenerator generator = JSON.createGenerator(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                write(generator, node);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("Cannot hash JSON value", e);
+        }
+    }
+
+    private static void write(JsonGenerator generator, JsonNode node) throws IOException {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            generator.writeNull();
+        } else if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            names.sort(null);
+            generator.writeStartObject();
+            for (String name : names) {
+                generator.writeFieldName(name);
+                write(generator, node.get(name));
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (Iterator<JsonNode> it = node.elements(); it.hasNext(); ) {
+                write(generator, it.next());
+            }
+            generator.writeEndArray();
+        } else if (node.isNumber()) {
+            // 1, 1.0 and 1e0 are the same value
+            generator.writeNumber(node.decimalValue().stripTrailingZeros().toPlainString());
+        } else if (node.isBoolean()) {
+            generator.writeBoolean(node.booleanValue());
+        } else {
+            generator.writeString(node.asText());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mcp.client.model.McpResource;
+import com.mcp.client.model.McpTool;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Keeps the {@code mcp_tools} and {@code mcp_resources} tables in step with
+ * what a server last reported.
+ * <p>
+ * The fetched catalog is compared with the stored rows, tools by name and a
+ * hash of their description and input schema, resources by URI and their
+ * fields, and only the differences are written: one JDBC batch each for
+ * inserts, updates and deletes, all in one transaction. Refreshing an
+ * unchanged catalog therefore costs a single query.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    // IOException is checked, which @Transactional would otherwise commit on
+    @Transactional(rollbackFor = IOException.class)
+    public void syncTools(String serverId, List<McpTool> tools) throws IOException {
+        Map<String, StoredRow> stored = new HashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, name, schema_hash FROM mcp_tools WHERE server_id = ?", rs -> {
+            StoredRow row = new StoredRow(rs.getLong("id"), rs.getString("schema_hash"));
+            // Rows left over from duplicate names are dropped
+            if (stored.putIfAbsent(rs.getString("name"), row) != null) {
+                deletes.add(row.id());
+            }
+        }, serverId);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (McpTool tool : unique(tools, McpTool::getName).values()) {
+            String schema = objectMapper.writeValueAsString(tool.getInputSchema());
+            String hash = schemaHash(tool);
+            StoredRow row = stored.remove(tool.getName());
+            if (row == null) {
+                inserts.add(new Object[] { serverId, tool.getName(), tool.getDescription(), schema, hash });
+            } else if (!hash.equals(row.hash())) {
+                updates.add(new Object[] { tool.getDescription(), schema, hash, row.id() });
+            }
+        }
+        stored.values().forEach(row -> deletes.add(row.id()));
+
+        batch("INSERT INTO mcp_tools (server_id, name, description, input_schema, schema_hash) VALUES (?, ?, ?, ?, ?)",
+                inserts);
+        batch("UPDATE mcp_tools SET description = ?, input_schema = ?, schema_hash = ? WHERE id = ?", updates);
+        batch("DELETE FROM mcp_tools WHERE id = ?", deletes.stream().map(id -> new Object[] { id }).toList());
+        log.debug("Tool catalog of {} stored: {} inserted, {} updated, {} deleted",
+                serverId, inserts.size(), updates.size(), deletes.size());
+    }
+
+    @Transactional
+    public void syncResources(String serverId, List<McpResource> resources) {
+        Map<String, StoredResource> stored = new HashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, uri, name, description, mime_type FROM mcp_resources WHERE server_id = ?",
+                rs -> {
+                    McpResource resource = new McpResource();
+                    resource.setUri(rs.getString("uri"));
+                    resource.setName(rs.getString("name"));
+                    resource.setDescription(rs.getString("description"));
+                    resource.setMimeType(rs.getString("mime_type"));
+                    long id = rs.getLong("id");
+                    if (stored.putIfAbsent(resource.getUri(), new StoredResource(id, resource)) != null) {
+                        deletes.add(id);
+                    }
+                }, serverId);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (McpResource resource : unique(resources, McpResource::getUri).values()) {
+            StoredResource row = stored.remove(resource.getUri());
+            if (row == null) {
+                inserts.add(new Object[] { serverId, resource.getUri(), resource.getName(),
+                        resource.getDescription(), resource.getMimeType() });
+            } else if (!sameResource(row.resource(), resource)) {
+                updates.add(new Object[] { resource.getName(), resource.getDescription(), resource.getMimeType(),
+                        row.id() });
+            }
+        }
+        stored.values().forEach(row -> deletes.add(row.id()));
+
+        batch("INSERT INTO mcp_resources (server_id, uri, name, description, mime_type) VALUES (?, ?, ?, ?, ?)",
+                inserts);
+        batch("UPDATE mcp_resources SET name = ?, description = ?, mime_type = ? WHERE id = ?", updates);
+        batch("DELETE FROM mcp_resources WHERE id = ?", deletes.stream().map(id -> new Object[] { id }).toList());
+        log.debug("Resource catalog of {} stored: {} inserted, {} updated, {} deleted",
+                serverId, inserts.size(), updates.size(), deletes.size());
+    }
+
+    /**
+     * Hash of everything stored about a tool besides its name
+     */
+    private String schemaHash(McpTool tool) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("description", tool.getDescription());
+        node.set("inputSchema", objectMapper.valueToTree(tool.getInputSchema()));
+        return CanonicalJson.sha256(node);
+    }
+
+    private static boolean sameResource(McpResource a, McpResource b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getMimeType(), b.getMimeType());
+    }
+
+    /**
+     * Items by key in listing order; the last of any duplicates wins and items without a key are skipped
+     */
+    private static <T> Map<String, T> unique(List<T> items, Function<T, String> key) {
+        Map<String, T> byKey = new LinkedHashMap<>();
+        for (T item : items) {
+            String k = key.apply(item);
+            if (k != null) {
+                byKey.put(k, item);
+            }
+        }
+        return byKey;
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    private record StoredRow(long id, String hash) {
+    }
+
+    private record StoredResource(long id, McpResource resource) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent requests into one upstream call.
+ * <p>
+ * The first caller for a key starts the call; anyone asking for the same key
+ * before it completes waits for that call instead of sending their own, and
+ * every waiter gets the same result or error. Nothing is kept once the call
+ * completes, so this only removes duplicate work that overlaps in time.
+ * Followers are counted in {@code mcp.requests.coalesced}, tagged by method.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InFlightRequests {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Listing<?>> listings = new ConcurrentHashMap<>();
+
+    /**
+     * Key of a request to {@code serverId}; params objects that differ only
+     * in field order are the same request
+     */
+    public static Key key(String serverId, String method, JsonNode params) {
+        return new Key(serverId, method, CanonicalJson.sha256(params));
+    }
+
+    /**
+     * Join the call in flight for {@code key}, or start one with {@code call}.
+     * Each caller gets its own future, so cancelling one does not affect the others.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> join(Key key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> current = (CompletableFuture<T>) inFlight.putIfAbsent(key, flight);
+        if (current != null) {
+            coalesced(key);
+            return current.copy();
+        }
+
+        CompletableFuture<T> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * Join the paged listing in flight for {@code key}, or start one by running
+     * {@code load} on {@code executor}. The load writes into the shared
+     * listing, never into a caller's output, so every caller (the one that
+     * started it included) reads the pages at its own pace and one that stops
+     * reading does not affect the load or anyone else.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Listing<T> joinListing(Key key, Executor executor, ListingLoad<T> load) {
+        Listing<T> listing = new Listing<>();
+        Listing<T> current = (Listing<T>) listings.putIfAbsent(key, listing);
+        if (current != null) {
+            coalesced(key);
+            return current;
+        }
+
+        Runnable task = () -> {
+            try {
+                load.load(listing);
+                listing.finish(null);
+            } catch (Throwable e) {
+                listing.finish(e);
+            } finally {
+                listings.remove(key, listing);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            listings.remove(key, listing);
+            listing.finish(e);
+        }
+        return listing;
+    }
+
+    private void coalesced(Key key) {
+        log.debug("Joining in-flight {} on {}", key.method(), key.serverId());
+        Counter.builder("mcp.requests.coalesced")
+                .description("Requests answered by an identical call that was already in flight")
+                .tag("method", key.method())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public record Key(String serverId, String method, String paramsHash) {
+    }
+
+    /**
+     * Pages of a listing, kept until it completes so that callers who join
+     * late still read it from the first page
+     */
+    public static final class Listing<T> implements McpClientService.PageSink<T> {
+
+        // A lock rather than synchronized so a waiting reader does not pin a virtual thread's carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final List<List<T>> pages = new ArrayList<>();
+        private boolean done;
+        private Throwable error;
+
+        @Override
+        public void accept(List<T> items) {
+            lock.lock();
+            try {
+                pages.add(items);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finish(Throwable failure) {
+            lock.lock();
+            try {
+                done = true;
+                error = failure;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Hand every page to {@code sink} as it arrives, returning once the
+         * last one was written; throws whatever failed the load
+         */
+        public void drainTo(McpClientService.PageSink<T> sink) throws IOException {
+            for (int next = 0; ; next++) {
+                List<T> page;
+                lock.lock();
+                try {
+                    while (next == pages.size() && !done) {
+                        changed.await();
+                    }
+                    if (next == pages.size()) {
+                        if (error instanceof IOException ioException) {
+                            throw ioException;
+                        }
+                        if (error != null) {
+                            throw new IOException(error.getMessage(), error);
+                        }
+                        return;
+                    }
+                    page = pages.get(next);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for MCP server response");
+                } finally {
+                    lock.unlock();
+                }
+                sink.accept(page);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ListingLoad<T> {
+        void load(McpClientService.PageSink<T> pages) throws IOException;
+    }
+}
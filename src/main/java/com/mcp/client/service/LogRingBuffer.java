@@ -0,0 +1,42 @@
+package com.mcp.client.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity buffer of the most recent log lines written by a server.
+ * Older lines are overwritten and long lines truncated, so memory stays
+ * bounded no matter how much a server logs.
+ */
+public class LogRingBuffer {
+    static final int MAX_LINE_LENGTH = 2000;
+
+    private final String[] lines;
+    private int next;
+    private int size;
+
+    public LogRingBuffer(int capacity) {
+        this.lines = new String[Math.max(1, capacity)];
+    }
+
+    public synchronized void add(String line) {
+        lines[next] = line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) + "..." : line;
+        next = (next + 1) % lines.length;
+        if (size < lines.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Up to {@code limit} of the most recent lines, oldest first.
+     */
+    public synchronized List<String> tail(int limit) {
+        int count = Math.min(Math.max(limit, 0), size);
+        List<String> result = new ArrayList<>(count);
+        int first = next - count;
+        for (int i = 0; i < count; i++) {
+            result.add(lines[Math.floorMod(first + i, lines.length)]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package com.mcp.client.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mcp.client.model.McpResource;
+import com.mcp.client.model.McpTool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of each server's tool and resource lists.
+ * <p>
+ * Entries expire after {@code mcp.client.catalog-cache-ttl} and are dropped
+ * as soon as the server reports a {@code list_changed} notification. Each
+ * server also has a generation number that is bumped on every invalidation,
+ * so a listing that was in flight while the catalog changed is not cached.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpCatalogCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mcp.client.catalog-cache-ttl:5m}")
+    private Duration ttl;
+
+    private Cache<String, List<McpTool>> tools;
+    private Cache<String, List<McpResource>> resources;
+    private final Map<String, AtomicLong> toolGenerations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> resourceGenerations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        tools = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder().expireAfterWrite(ttl).recordStats().<String, List<McpTool>>build(),
+                "mcp.catalog.tools");
+        resources = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder().expireAfterWrite(ttl).recordStats().<String, List<McpResource>>build(),
+                "mcp.catalog.resources");
+    }
+
+    public List<McpTool> getTools(String serverId) {
+        return tools.getIfPresent(serverId);
+    }
+
+    /**
+     * Generation to pass back to {@link #putTools}; read it before starting the listing
+     */
+    public long toolsGeneration(String serverId) {
+        return generation(toolGenerations, serverId).get();
+    }
+
+    public void putTools(String serverId, long generation, List<McpTool> list) {
+        put(tools, toolGenerations, serverId, generation, List.copyOf(list));
+    }
+
+    public void invalidateTools(String serverId) {
+        generation(toolGenerations, serverId).incrementAndGet();
+        tools.invalidate(serverId);
+        log.debug("Tool catalog of {} invalidated", serverId);
+    }
+
+    public List<McpResource> getResources(String serverId) {
+        return resources.getIfPresent(serverId);
+    }
+
+    /**
+     * Generation to pass back to {@link #putResources}; read it before starting the listing
+     */
+    public long resourcesGeneration(String serverId) {
+        return generation(resourceGenerations, serverId).get();
+    }
+
+    public void putResources(String serverId, long generation, List<McpResource> list) {
+        put(resources, resourceGenerations, serverId, generation, List.copyOf(list));
+    }
+
+    public void invalidateResources(String serverId) {
+        generation(resourceGenerations, serverId).incrementAndGet();
+        resources.invalidate(serverId);
+        log.debug("Resource catalog of {} invalidated", serverId);
+    }
+
+    /**
+     * Forget everything about a server, e.g. after it was unregistered
+     */
+    public void evict(String serverId) {
+        invalidateTools(serverId);
+        invalidateResources(serverId);
+    }
+
+    private static <T> void put(Cache<String, List<T>> cache, Map<String, AtomicLong> generations,
+            String serverId, long generation, List<T> list) {
+        // Compute under the map's lock so an invalidation cannot slip in between the check and the write
+        cache.asMap().compute(serverId, (key, current) ->
+                generation(generations, serverId).get() == generation ? list : current);
+    }
+
+    private static AtomicLong generation(Map<String, AtomicLong> generations, String serverId) {
+        return generations.computeIfAbsent(serverId, key -> new AtomicLong());
+    }
+}
@@ -2,28 +2,43 @@ package com.mcp.client.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mcp.client.entity.ResourceEntity;
+import com.mcp.client.config.ToolPolicyProperties;
 import com.mcp.client.entity.ServerEntity;
-import com.mcp.client.entity.ToolEntity;
 import com.mcp.client.entity.ToolJobEntity;
+import com.mcp.client.exception.McpTimeoutException;
 import com.mcp.client.model.*;
-import com.mcp.client.repository.ResourceRepository;
 import com.mcp.client.repository.ServerRepository;
 import com.mcp.client.repository.ToolJobRepository;
-import com.mcp.client.repository.ToolRepository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -31,9 +46,17 @@ import java.util.concurrent.ConcurrentHashMap;
 public class McpClientService {
 
     private final ServerRepository serverRepository;
-    private final ToolRepository toolRepository;
-    private final ResourceRepository resourceRepository;
     private final ToolJobRepository toolJobRepository;
+    private final ToolJobStateWriter toolJobStateWriter;
+    private final McpCatalogCache catalogCache;
+    private final CatalogStore catalogStore;
+    private final McpResourceCache resourceCache;
+    private final ToolResultCache toolResultCache;
+    private final ToolPolicyProperties toolPolicies;
+    private final InFlightRequests inFlightRequests;
+    private final ObjectMapper objectMapper;
+    private final SseBroadcaster sseBroadcaster;
+    private final MeterRegistry meterRegistry;
 
     @Value("${mcp.client.name:spring-mcp-client}")
     private String clientName;
@@ -41,37 +64,184 @@ public class McpClientService {
     @Value("${mcp.client.version:1.0.0}")
     private String clientVersion;
 
-    private final Map<String, McpServerConnection> connections = new ConcurrentHashMap<>();
+    @Value("${mcp.client.request-timeout:30s}")
+    private Duration requestTimeout;
+
+    @Value("${mcp.client.job-timeout:10m}")
+    private Duration jobTimeout;
+
+    @Value("${mcp.client.default-replicas:1}")
+    private int defaultReplicas;
+
+    @Value("${mcp.client.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${mcp.client.stderr-buffer-lines:500}")
+    private int stderrBufferLines;
+
+    @Value("${mcp.client.max-concurrent-requests-per-server:0}")
+    private int maxConcurrentRequests;
+
+    @Value("${mcp.client.max-queued-requests-per-server:100}")
+    private int maxQueuedRequests;
+
+    @Value("${mcp.client.fan-out-timeout:10s}")
+    private Duration fanOutTimeout;
+
+    @Value("${mcp.client.restore-concurrency:4}")
+    private int restoreConcurrency;
+
+    @Value("${mcp.client.lazy-start:false}")
+    private boolean lazyStart;
+
+    @Value("${mcp.client.idle-timeout:10m}")
+    private Duration idleTimeout;
+
+    @Value("${mcp.client.hot-servers:}")
+    private Set<String> hotServers;
+
+    @Value("${mcp.client.reconnect-initial-backoff:1s}")
+    private Duration reconnectInitialBackoff;
+
+    @Value("${mcp.client.reconnect-max-backoff:60s}")
+    private Duration reconnectMaxBackoff;
+
+    @Value("${mcp.client.circuit-breaker-threshold:5}")
+    private int circuitBreakerThreshold;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<String, McpServerPool> connections = new ConcurrentHashMap<>();
+    // Resumes calls that waited for a restore or a tool slot, off the thread that handed it over
+    private final ExecutorService resumeExecutor = Executors.newThreadPerTaskExecutor(
+            task -> ioThreads().newThread(task));
+    // Walks catalog pages for listings shared by every caller that asked for them
+    private final ExecutorService listingExecutor = Executors.newThreadPerTaskExecutor(
+            task -> ioThreads().newThread(task));
+    // Persists status changes reported by pools in the order they happen, off the request path
+    private final ExecutorService statusWriter = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("mcp-status-writer").daemon().factory());
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    // Jobs streamed to subscribers here but not running here, with the last status sent
+    private final Map<Long, ToolJobEntity.Status> watchedJobs = new ConcurrentHashMap<>();
+    // Per-tool limits, created on the first call of each tool that has one
+    private final Map<ToolKey, Bulkhead> toolBulkheads = new ConcurrentHashMap<>();
+    // Servers restored at startup that are not connected yet, or failed to
+    private final Map<String, Restore> restores = new ConcurrentHashMap<>();
+    private final AtomicInteger restoredConnected = new AtomicInteger();
+    private volatile int restoreTotal;
 
     // --------------- Restore Connections on Startup ---------------
+    /**
+     * Reconnect every persisted server in the background, at most
+     * {@code mcp.client.restore-concurrency} at a time, so startup does not
+     * wait for slow server processes. Until a server is connected it is
+     * listed as RESTORING (or FAILED), and requests for it wait for the restore.
+     * Failed restores are tried again with the reconnect backoff.
+     */
     @PostConstruct
     public void restoreServers() {
         List<ServerEntity> entities = serverRepository.findAll();
+        restoreTotal = entities.size();
         log.info("Restoring {} previously registered MCP servers...", entities.size());
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        entities.forEach(entity -> entity.setStatus(ServerEntity.Status.RESTORING));
+        serverRepository.saveAll(entities);
 
+        ExecutorService restorer = Executors.newFixedThreadPool(Math.max(1, Math.min(restoreConcurrency,
+                entities.size())), Thread.ofPlatform().name("mcp-restore-", 0).daemon().factory());
         for (ServerEntity entity : entities) {
-            try {
-                ServerConfig config = new ServerConfig(
-                        entity.getId(),
-                        entity.getCommand(),
-                        List.of(entity.getArgs().split(",")),
-                        entity.getWorkingDirectory());
-
-                McpServerConnection connection = new McpServerConnection(config);
-                connection.connect(clientName, clientVersion);
-                connections.put(entity.getId(), connection);
-
-                entity.setStatus(ServerEntity.Status.CONNECTED);
-                entity.setLastConnected(LocalDateTime.now());
-                serverRepository.save(entity);
-                log.info("Reconnected server: {}", entity.getId());
+            ServerConfig config = new ServerConfig(
+                    entity.getId(),
+                    entity.getCommand(),
+                    List.of(entity.getArgs().split(",")),
+                    entity.getWorkingDirectory(),
+                    entity.getReplicas(),
+                    entity.getBatchRequests());
+            CompletableFuture<McpServerPool> restore = new CompletableFuture<>();
+            restores.put(entity.getId(), new Restore(config, restore));
+            restorer.execute(() -> restoreServer(entity, config, restore, 1));
+        }
+        // Already queued restores still run; the threads exit once they are done
+        restorer.shutdown();
+    }
 
-            } catch (IOException e) {
-                log.warn("Failed to restore server {}: {}", entity.getId(), e.getMessage());
-                entity.setStatus(ServerEntity.Status.FAILED);
-                serverRepository.save(entity);
+    private void restoreServer(ServerEntity entity, ServerConfig config, CompletableFuture<McpServerPool> restore,
+            int attempt) {
+        McpServerPool pool = createPool(config);
+        try {
+            startPool(pool);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to restore server {} (attempt {}): {}", entity.getId(), attempt, e.getMessage());
+            pool.disconnect();
+            entity.setStatus(ServerEntity.Status.FAILED);
+            serverRepository.save(entity);
+            restore.completeExceptionally(e);
+            retryRestore(entity, config, restore, attempt);
+            return;
+        }
+
+        // Publish the pool unless the server was unregistered or re-registered while it was starting
+        restores.computeIfPresent(entity.getId(), (id, current) -> {
+            if (current.future() != restore) {
+                return current;
             }
+            connections.put(id, pool);
+            return null;
+        });
+        if (connections.get(entity.getId()) != pool) {
+            pool.disconnect();
+            restore.completeExceptionally(new IOException("Server " + entity.getId() + " was unregistered"));
+            return;
+        }
+
+        if (pool.isIdle()) {
+            entity.setStatus(ServerEntity.Status.IDLE);
+        } else {
+            entity.setStatus(ServerEntity.Status.CONNECTED);
+            entity.setLastConnected(LocalDateTime.now());
         }
+        serverRepository.save(entity);
+        restoredConnected.incrementAndGet();
+        restore.complete(pool);
+        log.info("Restored server: {} ({})", entity.getId(), entity.getStatus());
+    }
+
+    /**
+     * Restore a server again once the reconnect backoff after {@code attempt}
+     * has passed, for as long as it is neither unregistered nor registered
+     * anew. Requests in between fail at once rather than wait for the retry.
+     */
+    private void retryRestore(ServerEntity entity, ServerConfig config, CompletableFuture<McpServerPool> failed,
+            int attempt) {
+        long delay = reconnectPolicy().backoffNanos(attempt);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, resumeExecutor).execute(() -> {
+            CompletableFuture<McpServerPool> retry = new CompletableFuture<>();
+            if (restores.replace(entity.getId(), new Restore(config, failed), new Restore(config, retry))) {
+                restoreServer(entity, config, retry, attempt + 1);
+            }
+        });
+    }
+
+    /**
+     * Number of servers found in the database at startup, and how many of
+     * those have been reconnected (or made ready to start on demand) so far
+     */
+    public RestoreProgress getRestoreProgress() {
+        int restoring = 0;
+        int failed = 0;
+        for (Restore restore : restores.values()) {
+            if (!restore.future().isDone()) {
+                restoring++;
+            } else if (restore.future().isCompletedExceptionally()) {
+                failed++;
+            }
+        }
+        return new RestoreProgress(restoreTotal, restoredConnected.get(), restoring, failed);
     }
 
     /**
@@ -81,13 +251,24 @@ public class McpClientService {
         if (connections.containsKey(config.getId())) {
             throw new IllegalArgumentException("Server with id " + config.getId() + " already registered");
         }
+        Restore restore = restores.get(config.getId());
+        if (restore != null && !restore.future().isDone()) {
+            throw new IllegalArgumentException("Server with id " + config.getId() + " is still being restored");
+        }
 
         log.info("Registering MCP server: {}", config.getId());
 
-        McpServerConnection connection = new McpServerConnection(config);
-        connection.connect(clientName, clientVersion);
+        McpServerPool pool = createPool(config);
+        try {
+            startPool(pool);
+        } catch (IOException | RuntimeException e) {
+            pool.disconnect();
+            throw e;
+        }
 
-        connections.put(config.getId(), connection);
+        connections.put(config.getId(), pool);
+        // Registering again replaces a server that failed to restore
+        restores.remove(config.getId());
 
         // Persist in DB
         ServerEntity entity = ServerEntity.builder()
@@ -95,8 +276,10 @@ public class McpClientService {
                 .command(config.getCommand())
                 .args(String.join(",", config.getArgs()))
                 .workingDirectory(config.getWorkingDirectory())
-                .status(ServerEntity.Status.CONNECTED)
-                .lastConnected(java.time.LocalDateTime.now())
+                .replicas(config.getReplicas())
+                .batchRequests(config.getBatchRequests())
+                .status(pool.isIdle() ? ServerEntity.Status.IDLE : ServerEntity.Status.CONNECTED)
+                .lastConnected(pool.isIdle() ? null : LocalDateTime.now())
                 .build();
 
         serverRepository.save(entity);
@@ -107,9 +290,29 @@ public class McpClientService {
      * Disconnect and unregister a server
      */
     public void unregisterServer(String serverId) {
-        McpServerConnection connection = connections.remove(serverId);
-        if (connection != null) {
-            connection.disconnect();
+        McpServerPool pool = connections.remove(serverId);
+        Restore restore = restores.remove(serverId);
+        if (pool == null && restore != null) {
+            // A restore still in progress notices the removal and closes its pool
+            log.info("Unregistered MCP server {} before it was restored", serverId);
+            serverRepository.findById(serverId).ifPresent(entity -> {
+                entity.setStatus(ServerEntity.Status.DISCONNECTED);
+                serverRepository.save(entity);
+            });
+        }
+        if (pool != null) {
+            pool.disconnect();
+            toolBulkheads.keySet().removeIf(key -> {
+                if (!key.serverId().equals(serverId)) {
+                    return false;
+                }
+                toolBulkheads.get(key).close();
+                return true;
+            });
+            catalogCache.evict(serverId);
+            resourceCache.evictServer(serverId);
+            toolResultCache.evictServer(serverId);
+            sseBroadcaster.complete(serverEventsTopic(serverId));
             log.info("Unregistered MCP server: {}", serverId);
 
             serverRepository.findById(serverId).ifPresent(entity -> {
@@ -125,11 +328,39 @@ public class McpClientService {
     public List<ServerInfo> listServers() {
         List<ServerInfo> servers = new ArrayList<>();
 
-        for (Map.Entry<String, McpServerConnection> entry : connections.entrySet()) {
+        for (Map.Entry<String, McpServerPool> entry : connections.entrySet()) {
+            McpServerPool pool = entry.getValue();
             ServerInfo info = new ServerInfo();
             info.setId(entry.getKey());
-            info.setConnected(entry.getValue().isConnected());
-            info.setConfig(entry.getValue().getConfig());
+            info.setConnected(pool.isConnected());
+            info.setStatus(pool.getStatus());
+            info.setConfig(pool.getConfig());
+
+            List<ReplicaInfo> replicas = new ArrayList<>();
+            List<McpServerConnection> replicaConnections = pool.getReplicas();
+            for (int i = 0; i < replicaConnections.size(); i++) {
+                McpServerConnection replica = replicaConnections.get(i);
+                ReplicaInfo replicaInfo = new ReplicaInfo();
+                replicaInfo.setIndex(i);
+                replicaInfo.setPid(replica.getPid());
+                replicaInfo.setConnected(replica.isConnected());
+                replicaInfo.setInFlight(replica.getInFlightCount());
+                replicas.add(replicaInfo);
+            }
+            info.setReplicas(replicas);
+            servers.add(info);
+        }
+
+        for (Map.Entry<String, Restore> entry : restores.entrySet()) {
+            if (connections.containsKey(entry.getKey())) {
+                continue;
+            }
+            CompletableFuture<McpServerPool> restore = entry.getValue().future();
+            ServerInfo info = new ServerInfo();
+            info.setId(entry.getKey());
+            info.setStatus(restore.isDone() ? ServerEntity.Status.FAILED : ServerEntity.Status.RESTORING);
+            info.setConfig(entry.getValue().config());
+            info.setReplicas(List.of());
             servers.add(info);
         }
 
@@ -137,116 +368,522 @@ public class McpClientService {
     }
 
     /**
-     * List tools available from a specific server
+     * List tools available from a specific server, served from the catalog
+     * cache until the server reports a change or the entry expires
      */
     public List<McpTool> listTools(String serverId) throws IOException {
-        McpServerConnection connection = getConnection(serverId);
-        List<McpTool> tools = connection.listTools();
+        List<McpTool> tools = new ArrayList<>();
+        streamTools(serverId, tools::addAll);
+        return tools;
+    }
 
-        // persist/update
-        ServerEntity serverEntity = serverRepository.findById(serverId).orElseThrow();
-        toolRepository.deleteAll(toolRepository.findByServer_Id(serverId)); // refresh existing
-        for (McpTool tool : tools) {
-            toolRepository.save(ToolEntity.builder()
-                    .name(tool.getName())
-                    .description(tool.getDescription())
-                    .inputSchema(new ObjectMapper().writeValueAsString(tool.getInputSchema()))
-                    .server(serverEntity)
-                    .build());
+    /**
+     * Hand a server's tools to {@code sink} page by page as they arrive, so
+     * large catalogs can be written out before the last page is fetched
+     */
+    public void streamTools(String serverId, PageSink<McpTool> sink) throws IOException {
+        List<McpTool> cached = catalogCache.getTools(serverId);
+        if (cached != null) {
+            sink.accept(cached);
+            return;
         }
 
-        return tools;
+        // Concurrent misses read the first one's listing instead of walking the pages again
+        inFlightRequests.<McpTool>joinListing(InFlightRequests.key(serverId, "tools/list", null),
+                listingExecutor, pages -> loadTools(serverId, pages)).drainTo(sink);
+    }
+
+    private void loadTools(String serverId, PageSink<McpTool> pages) throws IOException {
+        long generation = catalogCache.toolsGeneration(serverId);
+        List<McpTool> tools = getPool(serverId).withReplica(connection ->
+                collectPages(pages, cursor -> connection.listToolsPageAsync(cursor, requestTimeout)));
+
+        // persist only what changed since the last listing
+        catalogStore.syncTools(serverId, tools);
+
+        catalogCache.putTools(serverId, generation, tools);
     }
 
     /**
-     * List tools from all servers
+     * List tools from all servers in parallel; servers that have not answered
+     * by the fan-out deadline are reported with status "timeout"
      */
-    public Map<String, List<McpTool>> listAllTools() {
-        Map<String, List<McpTool>> allTools = new HashMap<>();
+    public CompletableFuture<Map<String, ServerListResult<McpTool>>> listAllTools() {
+        return fanOut("tools/list", catalogCache::getTools, McpServerConnection::listToolsAsync);
+    }
 
-        for (Map.Entry<String, McpServerConnection> entry : connections.entrySet()) {
+    /**
+     * Call a tool from the raw JSON of a {@link ToolCallRequest}, returning the
+     * raw JSON result; used by the HTTP endpoint to avoid re-encoding payloads.
+     * Tools with a cache TTL are answered from the result cache unless
+     * {@code bypassCache} is set, in which case the fresh result replaces the cached one.
+     * Tools with coalescing enabled share one upstream call between identical concurrent requests.
+     */
+    public CompletableFuture<byte[]> callToolRawAsync(String serverId, byte[] toolCallJson, boolean bypassCache) {
+        String toolName = ToolResultCache.peekToolName(toolCallJson);
+        ToolPolicyProperties.ToolPolicy policy = toolPolicies.policyFor(serverId, toolName);
+        JsonNode params = null;
+        if (policy.isCacheable() || policy.isCoalesced()) {
             try {
-                List<McpTool> tools = entry.getValue().listTools();
-                allTools.put(entry.getKey(), tools);
+                params = objectMapper.readTree(toolCallJson);
             } catch (IOException e) {
-                log.error("Error listing tools from server {}: {}", entry.getKey(), e.getMessage());
-                allTools.put(entry.getKey(), new ArrayList<>());
+                // Malformed body; let the connection reject it as usual
             }
         }
+        ToolResultCache.Key key = params != null && policy.isCacheable()
+                ? ToolResultCache.key(serverId, toolName, params.get("arguments"))
+                : null;
+
+        if (key != null && !bypassCache) {
+            byte[] cached = toolResultCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        McpServerPool.ReplicaCall<byte[]> upstream = connection -> connection.callToolRawAsync(toolCallJson,
+                requestTimeout);
+        CompletableFuture<byte[]> call = params != null && policy.isCoalesced()
+                ? inFlightRequests.join(InFlightRequests.key(serverId, "tools/call", params),
+                        () -> submitTool(serverId, toolName, upstream, deadline))
+                : submitTool(serverId, toolName, upstream, deadline);
+        if (key != null) {
+            ToolResultCache.Key cacheKey = key;
+            call = call.thenApply(result -> {
+                if (!ToolResultCache.isErrorResult(result)) {
+                    toolResultCache.put(cacheKey, result, policy.getCacheTtl());
+                }
+                return result;
+            });
+        }
+        return McpServerPool.withDeadline(call, requestTimeout, () -> requestTimedOut(serverId, requestTimeout));
+    }
 
-        return allTools;
+    private <T> CompletableFuture<T> submitTool(String serverId, String toolName, McpServerPool.ReplicaCall<T> call,
+            long deadline) {
+        return submitTools(serverId, toolName != null ? Map.of(toolName, 1) : Map.of(), call, deadline);
     }
 
     /**
-     * Call a tool on a specific server
+     * Submit a call of one or more tools to {@code serverId} once its restore,
+     * if any, has finished. For every tool whose policy sets a bulkhead, the
+     * call holds as many of its slots as it has calls of that tool until it
+     * completes; bulkheads are taken in tool name order, so two batches never
+     * wait for each other. Nothing blocks the caller; waiting for slots and the
+     * server pool both get whatever time is left until {@code deadline} (a
+     * {@link System#nanoTime} value).
      */
-    public JsonNode callTool(String serverId, String toolName, Object arguments) throws IOException {
-        McpServerConnection connection = getConnection(serverId);
-        return connection.callTool(toolName, arguments);
+    private <T> CompletableFuture<T> submitTools(String serverId, Map<String, Integer> callsPerTool,
+            McpServerPool.ReplicaCall<T> call, long deadline) {
+        return getPoolAsync(serverId).thenCompose(pool -> {
+            List<Map.Entry<Bulkhead, Integer>> slots = new ArrayList<>();
+            new TreeMap<>(callsPerTool).forEach((toolName, calls) -> {
+                ToolPolicyProperties.ToolPolicy policy = toolPolicies.policyFor(serverId, toolName);
+                if (policy.isBulkheaded()) {
+                    slots.add(Map.entry(toolBulkheads.computeIfAbsent(new ToolKey(serverId, toolName),
+                            key -> new Bulkhead("tool " + toolName + " on MCP server " + serverId,
+                                    policy.getMaxConcurrent(), policy.getQueueLimit(), requestTimeout, meterRegistry,
+                                    "mcp.bulkhead.tool", Tags.of("server", serverId, "tool", toolName))), calls));
+                }
+            });
+            return holdingSlots(slots, 0, deadline, resumeExecutor, () -> pool.submit(call, remaining(deadline)));
+        });
     }
 
     /**
-     * List resources available from a specific server
+     * Take the slots from {@code slots[next]} on, then make the call and give
+     * the slots back once it completes. A caller that had to wait for a slot
+     * goes on on {@code resumeExecutor}: the slot is handed over on the thread
+     * that freed it (a replica's reader, or the timeout thread), which must not
+     * end up writing the next request to a server.
      */
-    public List<McpResource> listResources(String serverId) throws IOException {
-        McpServerConnection connection = getConnection(serverId);
-        List<McpResource> resources = connection.listResources();
-
-        // persist/update
-        ServerEntity serverEntity = serverRepository.findById(serverId).orElseThrow();
-        resourceRepository.deleteAll(resourceRepository.findByServer_Id(serverId)); // refresh existing
-        for (McpResource resource : resources) {
-            resourceRepository.save(ResourceEntity.builder()
-                    .name(resource.getName())
-                    .description(resource.getDescription())
-                    .server(serverEntity)
-                    .uri(resource.getUri())
-                    .mimeType(resource.getMimeType())
-                    .build());
+    static <T> CompletableFuture<T> holdingSlots(List<Map.Entry<Bulkhead, Integer>> slots, int next,
+            long deadline, Executor resumeExecutor, Supplier<CompletableFuture<T>> call) {
+        if (next == slots.size()) {
+            return call.get();
         }
+        Bulkhead bulkhead = slots.get(next).getKey();
+        int permits = slots.get(next).getValue();
+        Function<Void, CompletableFuture<T>> holding = ignored -> holdingSlots(slots, next + 1, deadline,
+                resumeExecutor, call).whenComplete((value, error) -> bulkhead.release(permits));
+        CompletableFuture<Void> acquired = bulkhead.acquireAsync(permits, remaining(deadline));
+        return acquired.isDone() ? acquired.thenCompose(holding) : acquired.thenComposeAsync(holding, resumeExecutor);
+    }
 
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(deadline - System.nanoTime());
+    }
+
+    private static McpTimeoutException requestTimedOut(String serverId, Duration timeout) {
+        return new McpTimeoutException("Request to MCP server " + serverId + " timed out after "
+                + timeout.toMillis() + " ms");
+    }
+
+    /**
+     * Call several tools on one server in a single JSON-RPC round trip;
+     * results are returned in call order. The batch takes one slot of a
+     * tool's bulkhead per call of that tool, and is rejected if it holds more
+     * calls of a tool than the tool allows at once.
+     */
+    public CompletableFuture<List<ToolCallResult>> callToolsAsync(String serverId, List<ToolCallRequest> calls) {
+        if (calls == null || calls.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one tool call");
+        }
+        if (calls.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch of " + calls.size() + " calls exceeds the limit of " + maxBatchSize);
+        }
+
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        Map<String, Integer> callsPerTool = new HashMap<>();
+        for (ToolCallRequest call : calls) {
+            if (call.getName() != null) {
+                callsPerTool.merge(call.getName(), 1, Integer::sum);
+            }
+        }
+        CompletableFuture<List<ToolCallResult>> results = submitTools(serverId, callsPerTool,
+                connection -> connection.callToolsAsync(calls, requestTimeout), deadline);
+        return McpServerPool.withDeadline(results, requestTimeout, () -> requestTimedOut(serverId, requestTimeout));
+    }
+
+    /**
+     * List resources available from a specific server, served from the
+     * catalog cache until the server reports a change or the entry expires
+     */
+    public List<McpResource> listResources(String serverId) throws IOException {
+        List<McpResource> resources = new ArrayList<>();
+        streamResources(serverId, resources::addAll);
         return resources;
     }
 
     /**
-     * List resources from all servers
+     * Hand a server's resources to {@code sink} page by page as they arrive
      */
-    public Map<String, List<McpResource>> listAllResources() {
-        Map<String, List<McpResource>> allResources = new HashMap<>();
+    public void streamResources(String serverId, PageSink<McpResource> sink) throws IOException {
+        List<McpResource> cached = catalogCache.getResources(serverId);
+        if (cached != null) {
+            sink.accept(cached);
+            return;
+        }
 
-        for (Map.Entry<String, McpServerConnection> entry : connections.entrySet()) {
-            try {
-                List<McpResource> resources = entry.getValue().listResources();
-                allResources.put(entry.getKey(), resources);
-            } catch (IOException e) {
-                log.error("Error listing resources from server {}: {}", entry.getKey(), e.getMessage());
-                allResources.put(entry.getKey(), new ArrayList<>());
+        inFlightRequests.<McpResource>joinListing(InFlightRequests.key(serverId, "resources/list", null),
+                listingExecutor, pages -> loadResources(serverId, pages)).drainTo(sink);
+    }
+
+    private void loadResources(String serverId, PageSink<McpResource> pages) throws IOException {
+        long generation = catalogCache.resourcesGeneration(serverId);
+        List<McpResource> resources = getPool(serverId).withReplica(connection ->
+                collectPages(pages, cursor -> connection.listResourcesPageAsync(cursor, requestTimeout)));
+
+        // persist only what changed since the last listing
+        catalogStore.syncResources(serverId, resources);
+
+        catalogCache.putResources(serverId, generation, resources);
+    }
+
+    /**
+     * Follow {@code nextCursor} from the first page to the last, passing each
+     * page to {@code sink}; returns every item for persisting and caching
+     */
+    private static <T> List<T> collectPages(PageSink<T> sink,
+            Function<String, CompletableFuture<CatalogPage<T>>> fetchPage) throws IOException {
+        List<T> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            CatalogPage<T> page = McpServerConnection.await(fetchPage.apply(cursor));
+            sink.accept(page.getItems());
+            items.addAll(page.getItems());
+            String next = page.getNextCursor();
+            cursor = next != null && !next.equals(cursor) ? next : null;
+        } while (cursor != null);
+        return items;
+    }
+
+    /**
+     * Read the contents of a resource. Small contents are decoded once and
+     * kept in the resource cache (and the server is asked to report updates
+     * to them); larger ones are decoded straight into the output when written.
+     */
+    public ResourceContent readResource(String serverId, String uri) throws IOException {
+        McpResourceCache.CachedResource cached = resourceCache.get(serverId, uri);
+        if (cached != null) {
+            return new ResourceContent(cached.mimeType(), cached.content().length,
+                    out -> out.write(cached.content()));
+        }
+
+        long generation = resourceCache.generation(serverId);
+        McpServerPool pool = getPool(serverId);
+        byte[] raw = McpServerConnection.await(pool.submit(connection -> connection.readResourceRawAsync(uri,
+                requestTimeout)));
+        ResourceContents contents = ResourceContents.locate(raw, uri);
+
+        if (!resourceCache.accepts(contents.maxDecodedLength())) {
+            return new ResourceContent(contents.getMimeType(), null, contents::writeTo);
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        contents.writeTo(decoded);
+        byte[] content = decoded.toByteArray();
+        resourceCache.put(serverId, generation, uri, contents.getMimeType(), content);
+        pool.submit(connection -> connection.subscribeResourceAsync(uri)).exceptionally(error -> {
+            log.debug("Server {} did not accept a subscription to {}: {}", serverId, uri, error.getMessage());
+            return null;
+        });
+        return new ResourceContent(contents.getMimeType(), content.length, out -> out.write(content));
+    }
+
+    /**
+     * List resources from all servers in parallel; servers that have not
+     * answered by the fan-out deadline are reported with status "timeout"
+     */
+    public CompletableFuture<Map<String, ServerListResult<McpResource>>> listAllResources() {
+        return fanOut("resources/list", catalogCache::getResources, McpServerConnection::listResourcesAsync);
+    }
+
+    /**
+     * Send the same listing to every server at once and collect whatever has
+     * arrived when all have answered or the global deadline passes. Servers
+     * with a cached catalog are answered from it; stopped lazy servers without
+     * one are reported with status "idle" rather than spawned for a listing.
+     */
+    private <T> CompletableFuture<Map<String, ServerListResult<T>>> fanOut(String method,
+            Function<String, List<T>> cached, McpServerPool.ReplicaCall<List<T>> call) {
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<ServerListResult<T>>> pending = new LinkedHashMap<>();
+
+        for (Map.Entry<String, McpServerPool> entry : connections.entrySet()) {
+            String serverId = entry.getKey();
+            McpServerPool pool = entry.getValue();
+            List<T> catalog = cached.apply(serverId);
+            if (catalog != null || pool.isIdle()) {
+                pending.put(serverId, CompletableFuture.completedFuture(catalog != null
+                        ? new ServerListResult<>(ServerListResult.OK, 0, catalog, null)
+                        : new ServerListResult<>(ServerListResult.IDLE, 0, null, null)));
+                continue;
             }
+            // Dashboards reloading together share one listing per server
+            CompletableFuture<ServerListResult<T>> result = inFlightRequests
+                    .join(InFlightRequests.key(serverId, method, null), () -> pool.submit(call))
+                    .handle((items, error) -> {
+                        long latencyMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+                        if (error == null) {
+                            return new ServerListResult<>(ServerListResult.OK, latencyMs, items, null);
+                        }
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("Error sending {} to server {}: {}", method, serverId, cause.getMessage());
+                        String status = cause instanceof McpTimeoutException
+                                ? ServerListResult.TIMEOUT : ServerListResult.ERROR;
+                        return new ServerListResult<T>(status, latencyMs, null, cause.getMessage());
+                    });
+            pending.put(serverId, result);
         }
 
-        return allResources;
+        return CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[0]))
+                .completeOnTimeout(null, fanOutTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(ignored -> {
+                    Map<String, ServerListResult<T>> results = new LinkedHashMap<>();
+                    pending.forEach((serverId, result) -> results.put(serverId, result.getNow(
+                            new ServerListResult<>(ServerListResult.TIMEOUT, fanOutTimeout.toMillis(), null,
+                                    "No answer within " + fanOutTimeout.toMillis() + " ms"))));
+                    return results;
+                });
     }
 
     /**
-     * Check if a server is registered and connected
+     * Check if a server is registered and connected, or idle and started on its next request
      */
     public boolean isServerConnected(String serverId) {
-        McpServerConnection connection = connections.get(serverId);
-        return connection != null && connection.isConnected();
+        McpServerPool pool = connections.get(serverId);
+        return pool != null && pool.isAvailable();
     }
 
     /**
-     * Get connection for a specific server
+     * Most recent stderr lines of each replica of a server, oldest first
      */
-    private McpServerConnection getConnection(String serverId) throws IOException {
-        McpServerConnection connection = connections.get(serverId);
-        if (connection == null) {
+    public List<List<String>> getServerLogs(String serverId, int maxLines) throws IOException {
+        McpServerPool pool = connections.get(serverId);
+        if (pool == null) {
             throw new IOException("Server not found: " + serverId);
         }
-        if (!connection.isConnected()) {
-            throw new IOException("Server not connected: " + serverId);
+
+        List<List<String>> logs = new ArrayList<>();
+        for (McpServerConnection replica : pool.getReplicas()) {
+            logs.add(replica.getStderrLog().tail(maxLines));
         }
-        return connection;
+        return logs;
+    }
+
+    /**
+     * Get the replica pool of a specific server
+     */
+    private McpServerPool getPool(String serverId) throws IOException {
+        // A restore may take as long as a server's initialize handshake
+        return McpServerConnection.await(McpServerPool.withDeadline(getPoolAsync(serverId),
+                McpServerConnection.INITIALIZE_TIMEOUT,
+                () -> new McpTimeoutException("MCP server " + serverId + " is still being restored")));
+    }
+
+    /**
+     * The replica pool of a server; requests that arrive while the server is
+     * still being restored get a future that completes once it is
+     */
+    private CompletableFuture<McpServerPool> getPoolAsync(String serverId) {
+        McpServerPool pool = connections.get(serverId);
+        if (pool != null) {
+            return CompletableFuture.completedFuture(pool);
+        }
+        Restore restore = restores.get(serverId);
+        if (restore == null) {
+            return CompletableFuture.failedFuture(new IOException("Server not found: " + serverId));
+        }
+
+        CompletableFuture<McpServerPool> restored = restore.future().exceptionallyCompose(error -> {
+            Throwable cause = McpServerPool.unwrap(error);
+            return CompletableFuture.failedFuture(new IOException("MCP server " + serverId + " failed to restore: "
+                    + cause.getMessage(), cause));
+        });
+        return restore.future().isDone() ? restored : restored.whenCompleteAsync((value, error) -> { }, resumeExecutor);
+    }
+
+    /**
+     * Threads for server I/O and for resuming calls: virtual threads with
+     * {@code spring.threads.virtual.enabled}, daemon platform threads otherwise
+     */
+    private ThreadFactory ioThreads() {
+        return virtualThreads ? Thread.ofVirtual().factory() : Thread.ofPlatform().daemon().factory();
+    }
+
+    private McpServerPool createPool(ServerConfig config) {
+        int replicas = config.getReplicas() != null ? config.getReplicas() : defaultReplicas;
+        Bulkhead bulkhead = maxConcurrentRequests > 0
+                ? new Bulkhead("MCP server " + config.getId(), maxConcurrentRequests, maxQueuedRequests,
+                        requestTimeout, meterRegistry, "mcp.bulkhead.server", Tags.of("server", config.getId()))
+                : null;
+        McpServerPool pool = new McpServerPool(config, Math.max(1, replicas), requestTimeout, stderrBufferLines,
+                ioThreads(), bulkhead, reconnectPolicy());
+        pool.setNotificationListener(notification -> handleNotification(config.getId(), notification));
+        pool.setSpawnListener(count -> serverCounter("mcp.servers.spawns", "Server processes started",
+                config.getId()).increment(count));
+        pool.setStateListener(status -> statusWriter.execute(() -> persistStatus(pool, status)));
+        return pool;
+    }
+
+    private McpServerPool.ReconnectPolicy reconnectPolicy() {
+        return new McpServerPool.ReconnectPolicy(reconnectInitialBackoff, reconnectMaxBackoff,
+                circuitBreakerThreshold);
+    }
+
+    /**
+     * Record a status change of a registered pool; changes made while a pool
+     * is being registered or restored are saved by that step instead
+     */
+    private void persistStatus(McpServerPool pool, ServerEntity.Status status) {
+        String serverId = pool.getConfig().getId();
+        if (connections.get(serverId) != pool) {
+            return;
+        }
+        try {
+            serverRepository.findById(serverId).ifPresent(entity -> {
+                entity.setStatus(status);
+                if (status == ServerEntity.Status.CONNECTED) {
+                    entity.setLastConnected(LocalDateTime.now());
+                }
+                serverRepository.save(entity);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to record status {} of server {}: {}", status, serverId, e.getMessage());
+        }
+    }
+
+    /**
+     * With {@code mcp.client.lazy-start}, servers other than the hot ones are
+     * only spawned when their first request arrives
+     */
+    private void startPool(McpServerPool pool) throws IOException {
+        if (lazyStart && !hotServers.contains(pool.getConfig().getId())) {
+            pool.connectLazily(clientName, clientVersion);
+        } else {
+            pool.connect(clientName, clientVersion);
+        }
+    }
+
+    /**
+     * Stop the processes of lazily started servers that have not served a
+     * request for {@code mcp.client.idle-timeout}. Their catalogs stay
+     * cached; cached resource contents are dropped, since the server can no
+     * longer report changes to them.
+     */
+    @Scheduled(fixedDelayString = "${mcp.client.idle-check-interval:30s}",
+            initialDelayString = "${mcp.client.idle-check-interval:30s}")
+    public void evictIdleServers() {
+        if (!lazyStart || idleTimeout.isZero()) {
+            return;
+        }
+        for (Map.Entry<String, McpServerPool> entry : connections.entrySet()) {
+            McpServerPool pool = entry.getValue();
+            if (pool.evictIfIdle(idleTimeout)) {
+                resourceCache.evictServer(entry.getKey());
+                serverCounter("mcp.servers.evictions", "Server processes stopped after being idle",
+                        entry.getKey()).increment(pool.getReplicas().size());
+            }
+        }
+    }
+
+    private Counter serverCounter(String name, String description, String serverId) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("server", serverId)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Called on a replica's reader thread for every notification the server
+     * sends; updates local state, then forwards it to the server's SSE subscribers
+     */
+    private void handleNotification(String serverId, JsonRpcResponse notification) {
+        switch (notification.getMethod()) {
+            case "notifications/tools/list_changed" -> {
+                catalogCache.invalidateTools(serverId);
+                toolResultCache.evictServer(serverId);
+            }
+            case "notifications/resources/list_changed" -> catalogCache.invalidateResources(serverId);
+            case "notifications/progress" -> publishJobProgress(notification);
+            case "notifications/resources/updated" -> {
+                JsonNode uri = notification.getParams() != null ? notification.getParams().get("uri") : null;
+                if (uri != null && uri.isTextual()) {
+                    resourceCache.invalidate(serverId, uri.asText());
+                }
+            }
+            default -> log.trace("Notification '{}' from {}", notification.getMethod(), serverId);
+        }
+        sseBroadcaster.publish(serverEventsTopic(serverId), notification.getMethod(), notification);
+    }
+
+    /**
+     * Stream every notification the server sends as Server-Sent Events named
+     * after the notification method
+     */
+    public SseEmitter subscribeToServerEvents(String serverId) throws IOException {
+        getPool(serverId);
+        return sseBroadcaster.subscribe(serverEventsTopic(serverId));
+    }
+
+    private void publishJobProgress(JsonRpcResponse notification) {
+        JsonNode token = notification.getParams() != null ? notification.getParams().get("progressToken") : null;
+        if (token == null || !token.isTextual() || !token.asText().startsWith("job-")) {
+            return;
+        }
+        try {
+            Long jobId = Long.valueOf(token.asText().substring("job-".length()));
+            sseBroadcaster.publish(jobEventsTopic(jobId), "progress", notification.getParams());
+        } catch (NumberFormatException ignore) {
+            // someone else's token
+        }
+    }
+
+    private static String serverEventsTopic(String serverId) {
+        return "server:" + serverId;
     }
 
     /**
@@ -255,7 +892,7 @@ public class McpClientService {
     @PreDestroy
     public void shutdown() {
         log.info("Shutting down MCP client, disconnecting all servers");
-        for (Map.Entry<String, McpServerConnection> entry : connections.entrySet()) {
+        for (Map.Entry<String, McpServerPool> entry : connections.entrySet()) {
             try {
                 entry.getValue().disconnect();
             } catch (Exception e) {
@@ -263,11 +900,15 @@ public class McpClientService {
             }
         }
         connections.clear();
+        resumeExecutor.shutdownNow();
+        listingExecutor.shutdownNow();
+        statusWriter.shutdown();
     }
 
     public void refreshAllServersData() {
         for (ServerEntity server : serverRepository.findAll()) {
             try {
+                catalogCache.evict(server.getId());
                 listTools(server.getId());
                 listResources(server.getId());
             } catch (Exception e) {
@@ -276,14 +917,23 @@ public class McpClientService {
         }
     }
 
-    @Async
-    public void executeToolJob(ToolJobEntity job) {
+    /**
+     * Run a job claimed by {@link ToolJobQueue}; the job is already RUNNING
+     * under {@code leaseOwner}. The outcome is recorded by {@link ToolJobStateWriter},
+     * and only if the lease is still held, so a job that was handed to another
+     * worker is not overwritten.
+     */
+    public void executeToolJob(ToolJobEntity job, String leaseOwner) {
+        runningJobs.add(job.getId());
         try {
-            job.setStatus(ToolJobEntity.Status.RUNNING);
-            toolJobRepository.save(job);
+            sseBroadcaster.publish(jobEventsTopic(job.getId()), "status", job);
 
-            JsonNode result = callTool(job.getServerId(), job.getToolName(),
-                    new ObjectMapper().readTree(job.getArgumentsJson()));
+            JsonNode arguments = objectMapper.readTree(job.getArgumentsJson());
+            // The job timeout covers waiting for a restore and a tool slot as well as the call
+            long deadline = System.nanoTime() + jobTimeout.toNanos();
+            JsonNode result = McpServerConnection.await(submitTool(job.getServerId(), job.getToolName(),
+                    connection -> connection.callToolAsync(job.getToolName(), arguments, jobTimeout,
+                            jobProgressToken(job.getId())), deadline));
 
             job.setResultJson(result.toString());
             job.setStatus(ToolJobEntity.Status.SUCCESS);
@@ -292,17 +942,165 @@ public class McpClientService {
             job.setStatus(ToolJobEntity.Status.FAILED);
         } finally {
             job.setCompletedAt(LocalDateTime.now());
-            toolJobRepository.save(job);
+            toolJobStateWriter.complete(job, leaseOwner, recorded -> {
+                // Saved before leaving runningJobs, so a subscriber that misses the live event finds the final state in the DB
+                runningJobs.remove(job.getId());
+                if (recorded) {
+                    sseBroadcaster.publish(jobEventsTopic(job.getId()), "status", job);
+                    sseBroadcaster.complete(jobEventsTopic(job.getId()));
+                } else {
+                    log.warn("Result of job {} was discarded: its lease was lost or the write failed", job.getId());
+                }
+            });
         }
     }
 
+    /**
+     * Stream a job's status changes and the progress notifications of its
+     * tool call as Server-Sent Events ("status" and "progress"). The stream
+     * starts with the job's current state and ends when the job finishes.
+     * Jobs that are queued or run by another instance are followed through
+     * the database by {@link #pollWatchedJobs}; progress is only streamed
+     * while the job runs here.
+     */
+    public SseEmitter subscribeToJob(Long jobId) throws IOException {
+        String topic = jobEventsTopic(jobId);
+        SseEmitter emitter = sseBroadcaster.subscribe(topic);
+        if (runningJobs.contains(jobId)) {
+            sseBroadcaster.publish(topic, "status", Map.of("id", jobId, "status", ToolJobEntity.Status.RUNNING));
+            return emitter;
+        }
+
+        // Not running here: either still queued, finished, or unknown; the database has the answer
+        Optional<ToolJobEntity> job = toolJobRepository.findById(jobId);
+        if (job.isEmpty()) {
+            sseBroadcaster.complete(topic);
+            throw new IOException("Job not found: " + jobId);
+        }
+        sseBroadcaster.publish(topic, "status", job.get());
+        ToolJobEntity.Status status = job.get().getStatus();
+        if (isFinished(status)) {
+            sseBroadcaster.complete(topic);
+        } else {
+            watchedJobs.put(jobId, status);
+        }
+        return emitter;
+    }
+
+    /**
+     * Send status changes of streamed jobs that are not running here, e.g.
+     * because another instance claimed them, and end their streams once they
+     * finish. Reads all of them in one query per interval.
+     */
+    @Scheduled(fixedDelayString = "${mcp.client.job-poll-interval:1s}",
+            initialDelayString = "${mcp.client.job-poll-interval:1s}")
+    public void pollWatchedJobs() {
+        // Jobs whose streams have all closed, or that now run here and publish their own events
+        watchedJobs.keySet().removeIf(jobId -> !sseBroadcaster.hasSubscribers(jobEventsTopic(jobId))
+                || runningJobs.contains(jobId));
+        if (watchedJobs.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(watchedJobs.keySet());
+        for (ToolJobEntity job : toolJobRepository.findAllById(missing)) {
+            missing.remove(job.getId());
+            ToolJobEntity.Status last = watchedJobs.get(job.getId());
+            if (last == null || runningJobs.contains(job.getId())) {
+                continue;
+            }
+            String topic = jobEventsTopic(job.getId());
+            if (job.getStatus() != last) {
+                sseBroadcaster.publish(topic, "status", job);
+            }
+            if (isFinished(job.getStatus())) {
+                watchedJobs.remove(job.getId());
+                sseBroadcaster.complete(topic);
+            } else {
+                watchedJobs.replace(job.getId(), last, job.getStatus());
+            }
+        }
+        // Deleted meanwhile; nothing more will happen to them
+        for (Long jobId : missing) {
+            watchedJobs.remove(jobId);
+            sseBroadcaster.complete(jobEventsTopic(jobId));
+        }
+    }
+
+    private static boolean isFinished(ToolJobEntity.Status status) {
+        return status == ToolJobEntity.Status.SUCCESS || status == ToolJobEntity.Status.FAILED;
+    }
+
+    private static String jobEventsTopic(Long jobId) {
+        return "job:" + jobId;
+    }
+
+    private static String jobProgressToken(Long jobId) {
+        return "job-" + jobId;
+    }
+
+    /**
+     * Contents of a resource, ready to be written to a response; the length is
+     * only known up front when the contents were decoded ahead of time
+     */
+    public static class ResourceContent {
+        private final String mimeType;
+        private final Integer contentLength;
+        private final ContentWriter writer;
+
+        public ResourceContent(String mimeType, Integer contentLength, ContentWriter writer) {
+            this.mimeType = mimeType;
+            this.contentLength = contentLength;
+            this.writer = writer;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public Integer getContentLength() {
+            return contentLength;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            writer.writeTo(out);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Startup restore counts: servers found in the database, and how many of
+     * them are connected, still restoring or failed
+     */
+    public record RestoreProgress(int total, int connected, int restoring, int failed) {
+    }
+
+    private record ToolKey(String serverId, String toolName) {
+    }
+
+    private record Restore(ServerConfig config, CompletableFuture<McpServerPool> future) {
+    }
+
+    /**
+     * Receives one page of a catalog listing at a time
+     */
+    @FunctionalInterface
+    public interface PageSink<T> {
+        void accept(List<T> items) throws IOException;
+    }
+
     /**
      * Inner class for server information
      */
     public static class ServerInfo {
         private String id;
         private boolean connected;
+        private ServerEntity.Status status;
         private ServerConfig config;
+        private List<ReplicaInfo> replicas;
 
         public String getId() {
             return id;
@@ -320,6 +1118,14 @@ public class McpClientService {
             this.connected = connected;
         }
 
+        public ServerEntity.Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(ServerEntity.Status status) {
+            this.status = status;
+        }
+
         public ServerConfig getConfig() {
             return config;
         }
@@ -327,5 +1133,55 @@ public class McpClientService {
         public void setConfig(ServerConfig config) {
             this.config = config;
         }
+
+        public List<ReplicaInfo> getReplicas() {
+            return replicas;
+        }
+
+        public void setReplicas(List<ReplicaInfo> replicas) {
+            this.replicas = replicas;
+        }
+    }
+
+    /**
+     * Inner class for the state of one server process
+     */
+    public static class ReplicaInfo {
+        private int index;
+        private Long pid;
+        private boolean connected;
+        private int inFlight;
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public Long getPid() {
+            return pid;
+        }
+
+        public void setPid(Long pid) {
+            this.pid = pid;
+        }
+
+        public boolean isConnected() {
+            return connected;
+        }
+
+        public void setConnected(boolean connected) {
+            this.connected = connected;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public void setInFlight(int inFlight) {
+            this.inFlight = inFlight;
+        }
     }
 }
\ No newline at end of file
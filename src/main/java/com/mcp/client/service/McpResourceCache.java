@@ -0,0 +1,106 @@
+package com.mcp.client.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decoded resource contents keyed by server and URI, bounded by total bytes.
+ * <p>
+ * Entries are dropped on {@code notifications/resources/updated} for their
+ * URI, when their server is unregistered, or after
+ * {@code mcp.client.resource-cache-ttl} as a backstop for servers that do not
+ * support resource subscriptions. Each server has a generation number that
+ * is bumped on every invalidation, so contents read while an update was
+ * reported are not cached.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpResourceCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mcp.client.resource-cache-max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${mcp.client.resource-cache-max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    @Value("${mcp.client.resource-cache-ttl:10m}")
+    private Duration ttl;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private Cache<Key, CachedResource> contents;
+
+    @PostConstruct
+    void init() {
+        contents = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumWeight(maxBytes)
+                        .weigher((Key key, CachedResource value) -> value.content().length)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .<Key, CachedResource>build(),
+                "mcp.resources.content");
+    }
+
+    public CachedResource get(String serverId, String uri) {
+        return contents.getIfPresent(new Key(serverId, uri));
+    }
+
+    /**
+     * Whether content of up to {@code length} bytes may be cached
+     */
+    public boolean accepts(int length) {
+        return maxBytes > 0 && length <= maxEntryBytes;
+    }
+
+    /**
+     * Generation to pass back to {@link #put}; read it before starting the read
+     */
+    public long generation(String serverId) {
+        return generationOf(serverId).get();
+    }
+
+    public void put(String serverId, long generation, String uri, String mimeType, byte[] content) {
+        CachedResource resource = new CachedResource(mimeType, content);
+        // Compute under the map's lock so an invalidation cannot slip in between the check and the write
+        contents.asMap().compute(new Key(serverId, uri), (key, current) ->
+                generationOf(serverId).get() == generation ? resource : current);
+    }
+
+    public void invalidate(String serverId, String uri) {
+        generationOf(serverId).incrementAndGet();
+        contents.invalidate(new Key(serverId, uri));
+        log.debug("Cached content of {} on {} invalidated", uri, serverId);
+    }
+
+    public void evictServer(String serverId) {
+        generationOf(serverId).incrementAndGet();
+        contents.asMap().keySet().removeIf(key -> key.serverId().equals(serverId));
+    }
+
+    private AtomicLong generationOf(String serverId) {
+        return generations.computeIfAbsent(serverId, key -> new AtomicLong());
+    }
+
+    public record CachedResource(String mimeType, byte[] content) {
+    }
+
+    private record Key(String serverId, String uri) {
+    }
+}
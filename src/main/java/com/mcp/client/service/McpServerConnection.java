@@ -1,35 +1,91 @@
 package com.mcp.client.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mcp.client.exception.McpTimeoutException;
 import com.mcp.client.model.*;
 
 import lombok.extern.slf4j.Slf4j;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * JSON-RPC bridge to a single MCP server process over stdio.
+ * <p>
+ * Requests are multiplexed: any number of callers may have requests in flight
+ * at once. Writes are serialized on a lock and a background reader thread
+ * completes the waiting caller whose request {@code id} matches the
+ * response. Every request carries a deadline, so a hung server fails its
+ * callers with {@link McpTimeoutException} instead of blocking them forever.
+ * <p>
+ * A connection may be connected again after its process exits. Each process
+ * gets its own {@link Session}, so a reader that outlives its process can
+ * only fail the requests that were sent to it.
+ * <p>
+ * Stdout carries only protocol frames; stderr is drained on its own thread
+ * into a bounded {@link LogRingBuffer}.
+ */
 @Slf4j
 public class McpServerConnection {
+    // npx-launched servers may download packages before answering initialize
+    static final Duration INITIALIZE_TIMEOUT = Duration.ofMinutes(2);
+    private static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+
     private final ServerConfig config;
+    private final Duration requestTimeout;
+    private final LogRingBuffer stderrLog;
+    private final ThreadFactory ioThreads;
+    private final int maxFrameBytes;
+    private volatile Consumer<JsonRpcResponse> notificationListener = notification -> { };
+    private volatile IntConsumer exitListener = exitCode -> { };
     private final ObjectMapper objectMapper;
     private final AtomicLong requestIdCounter = new AtomicLong(1);
 
-    private Process serverProcess;
-    private BufferedReader reader;
-    private BufferedWriter writer;
-    private boolean connected = false;
+    // The latest process started by connect, or null before the first
+    private volatile Session session;
+
+    public McpServerConnection(ServerConfig config, Duration requestTimeout, int stderrBufferLines,
+            ThreadFactory ioThreads) {
+        this(config, requestTimeout, stderrBufferLines, ioThreads, MAX_FRAME_BYTES);
+    }
 
-    public McpServerConnection(ServerConfig config) {
+    McpServerConnection(ServerConfig config, Duration requestTimeout, int stderrBufferLines,
+            ThreadFactory ioThreads, int maxFrameBytes) {
         this.config = config;
-        this.objectMapper = new ObjectMapper();
+        this.requestTimeout = requestTimeout;
+        this.stderrLog = new LogRingBuffer(stderrBufferLines);
+        this.ioThreads = ioThreads;
+        this.maxFrameBytes = maxFrameBytes;
+        this.objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     public void connect(String clientName, String clientVersion) throws IOException {
         log.info("Connecting to MCP server: {}", config.getId());
 
+        Session started = null;
         try {
             // Build the command
             List<String> command = new ArrayList<>();
@@ -43,13 +99,22 @@ public class McpServerConnection {
             if (config.getWorkingDirectory() != null) {
                 processBuilder.directory(new File(config.getWorkingDirectory()));
             }
-            processBuilder.redirectErrorStream(true);
 
-            serverProcess = processBuilder.start();
+            Process serverProcess = processBuilder.start();
+            started = new Session(serverProcess, maxFrameBytes);
+            session = started;
 
-            // Setup IO streams
-            reader = new BufferedReader(new InputStreamReader(serverProcess.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(serverProcess.getOutputStream()));
+            // Keep server logs out of the protocol stream
+            InputStream stderr = serverProcess.getErrorStream();
+            Thread stderrThread = ioThreads.newThread(() -> drainStderr(stderr));
+            stderrThread.setName("mcp-stderr-" + config.getId());
+            stderrThread.start();
+
+            // Responses are read and dispatched by a dedicated thread
+            Session reading = started;
+            Thread readerThread = ioThreads.newThread(() -> readLoop(reading));
+            readerThread.setName("mcp-reader-" + config.getId());
+            readerThread.start();
 
             // Send initialize request
             InitializeRequest initRequest = new InitializeRequest(clientName, clientVersion);
@@ -58,7 +123,8 @@ public class McpServerConnection {
                     "initialize",
                     initRequest);
 
-            JsonRpcResponse response = sendRequest(request);
+            JsonRpcResponse response = await(sendAllAsync(started, List.of(request), INITIALIZE_TIMEOUT, false)
+                    .get(0));
 
             if (response.getError() != null) {
                 throw new IOException("Failed to initialize: " + response.getError().getMessage());
@@ -67,175 +133,848 @@ public class McpServerConnection {
             // Send initialized notification
             JsonRpcRequest initializedNotification = new JsonRpcRequest();
             initializedNotification.setMethod("notifications/initialized");
-            sendNotification(initializedNotification);
+            sendNotification(started, initializedNotification);
 
-            connected = true;
+            started.connected = true;
+            started.process.onExit().thenAccept(exited -> handleExit(reading));
             log.info("Successfully connected to MCP server: {}", config.getId());
 
         } catch (IOException e) {
-            cleanup();
+            if (started != null) {
+                cleanup(started);
+            }
             throw new IOException("Failed to connect to MCP server: " + e.getMessage(), e);
         }
     }
 
     public JsonRpcResponse sendRequest(JsonRpcRequest request) throws IOException {
-        if (!connected && !"initialize".equals(request.getMethod())) {
-            throw new IOException("Server not connected");
-        }
-
-        // Send request
-        String jsonRequest = objectMapper.writeValueAsString(request);
-        writer.write(jsonRequest);
-        writer.newLine();
-        writer.flush();
-
-        // Read response until JSON is found
-        String responseLine;
-        JsonRpcResponse response = null;
-        while ((responseLine = reader.readLine()) != null) {
-            if (responseLine.trim().startsWith("{")) {
-                try {
-                    response = objectMapper.readValue(responseLine, JsonRpcResponse.class);
-                    break;
-                } catch (Exception ignore) {
-                    log.warn("Skipping non-JSON line from {}: {}", config.getId(), responseLine);
+        return await(sendRequestAsync(request, requestTimeout));
+    }
+
+    /**
+     * Writes the request and returns a future completed by the reader thread
+     * when the matching response arrives, or failed with
+     * {@link McpTimeoutException} once {@code timeout} elapses.
+     */
+    public CompletableFuture<JsonRpcResponse> sendRequestAsync(JsonRpcRequest request, Duration timeout) {
+        return sendAllAsync(List.of(request), timeout, false).get(0);
+    }
+
+    /**
+     * Writes several requests with a single lock acquisition and flush, either
+     * as one JSON-RPC batch array or pipelined as consecutive frames. The
+     * returned futures are in request order.
+     */
+    public List<CompletableFuture<JsonRpcResponse>> sendAllAsync(List<JsonRpcRequest> requests, Duration timeout,
+            boolean asBatch) {
+        Session current = session;
+        return sendAllAsync(current != null && current.connected ? current : null, requests, timeout, asBatch);
+    }
+
+    /**
+     * Sends to {@code target}, or fails every request if it is null
+     */
+    private List<CompletableFuture<JsonRpcResponse>> sendAllAsync(Session target, List<JsonRpcRequest> requests,
+            Duration timeout, boolean asBatch) {
+        List<PendingRequest> pending = new ArrayList<>(requests.size());
+        for (JsonRpcRequest request : requests) {
+            pending.add(new PendingRequest(((Number) request.getId()).longValue(), request.getMethod(), false));
+        }
+
+        if (target == null) {
+            return failAll(pending, new IOException("Server not connected"), timeout);
+        }
+
+        List<byte[]> frames = new ArrayList<>(requests.size());
+        try {
+            if (asBatch) {
+                frames.add(objectMapper.writeValueAsBytes(requests));
+            } else {
+                for (JsonRpcRequest request : requests) {
+                    frames.add(objectMapper.writeValueAsBytes(request));
+                }
+            }
+        } catch (IOException e) {
+            return failAll(pending, e, timeout);
+        }
+
+        return transmit(target, pending, frames, timeout);
+    }
+
+    /**
+     * Registers the pending requests with {@code target}, writes their frames
+     * and attaches the deadline.
+     */
+    private List<CompletableFuture<JsonRpcResponse>> transmit(Session target, List<PendingRequest> pending,
+            List<byte[]> frames, Duration timeout) {
+        for (PendingRequest request : pending) {
+            target.pendingRequests.put(request.id, request);
+        }
+
+        try {
+            if (target.streamClosed) {
+                throw new IOException("Connection to MCP server closed: " + config.getId());
+            }
+            target.write(frames);
+        } catch (IOException e) {
+            for (PendingRequest request : pending) {
+                target.pendingRequests.remove(request.id);
+            }
+            return failAll(pending, e, timeout);
+        }
+
+        return pending.stream().map(request -> withDeadline(target, request, timeout)).toList();
+    }
+
+    private List<CompletableFuture<JsonRpcResponse>> failAll(List<PendingRequest> pending, IOException cause,
+            Duration timeout) {
+        pending.forEach(request -> request.future.completeExceptionally(cause));
+        return pending.stream().map(request -> withDeadline(request, timeout)).toList();
+    }
+
+    private CompletableFuture<JsonRpcResponse> withDeadline(PendingRequest request, Duration timeout) {
+        return withDeadline(null, request, timeout);
+    }
+
+    private CompletableFuture<JsonRpcResponse> withDeadline(Session target, PendingRequest request,
+            Duration timeout) {
+        return request.future
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> {
+                    // Still registered means no response arrived; tell the server to stop working on it
+                    if (target != null && target.pendingRequests.remove(request.id) != null
+                            && error instanceof TimeoutException) {
+                        ioThreads.newThread(() -> sendCancelled(target, request)).start();
+                    }
+                })
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                        toIOException(error, request.method, timeout)));
+    }
+
+    private IOException toIOException(Throwable error, String method, Duration timeout) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        if (cause instanceof TimeoutException) {
+            return new McpTimeoutException("Request '" + method + "' to MCP server " + config.getId()
+                    + " timed out after " + timeout.toMillis() + " ms");
+        }
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        return new IOException("Request '" + method + "' failed: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Blocks until the future completes, unwrapping its failure into an IOException.
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for MCP server response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Reads newline-delimited frames from the stdout of {@code source} and
+     * completes its pending request with the matching id. Runs until the
+     * stream is closed, and only ever closes {@code source}, even if the
+     * connection has moved on to a new process by then.
+     * <p>
+     * If the stream breaks before its end, e.g. on an oversized frame, the
+     * process is stopped, so the exit listener restarts it instead of leaving
+     * a live process that can no longer answer.
+     */
+    private void readLoop(Session source) {
+        StdioFrameReader reader = source.reader;
+        boolean endOfStream = false;
+        try {
+            while (reader.next()) {
+                handleFrame(source, reader.buffer(), reader.frameOffset(), reader.frameLength());
+            }
+            endOfStream = true;
+        } catch (IOException | RuntimeException e) {
+            if (source.connected) {
+                log.warn("Error reading from MCP server {}: {}", config.getId(), e.getMessage());
+            }
+        } finally {
+            source.streamClosed = true;
+            source.failPendingRequests(new IOException("Connection to MCP server closed: " + config.getId()));
+        }
+
+        if (!endOfStream && source.connected) {
+            log.warn("Stopping MCP server {} (pid {}) since its output can no longer be read", config.getId(),
+                    source.process.pid());
+            stop(source.process);
+        }
+    }
+
+    /**
+     * Decodes one frame straight from the read buffer. Lines that do not start
+     * with a JSON object or array (server log output) are skipped after
+     * looking at their first byte.
+     */
+    private void handleFrame(Session source, byte[] buffer, int offset, int length) {
+        int start = offset;
+        int limit = offset + length;
+        while (start < limit && (buffer[start] == ' ' || buffer[start] == '\t' || buffer[start] == '\r')) {
+            start++;
+        }
+        if (start == limit) {
+            return;
+        }
+
+        byte first = buffer[start];
+        if (first != '{' && first != '[') {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping line: {}", new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+            return;
+        }
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(buffer, start, limit - start)) {
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    dispatch(source, readMessage(source, parser, buffer, start));
                 }
             } else {
-                log.debug("Skipping line: {}", responseLine);
+                dispatch(source, readMessage(source, parser, buffer, start));
             }
+        } catch (IOException e) {
+            log.warn("Skipping non-JSON line from {}: {}", config.getId(),
+                    new String(buffer, offset, length, StandardCharsets.UTF_8));
         }
+    }
 
-        if (response == null) {
-            throw new IOException("No valid JSON response received from server");
+    /**
+     * Reads one JSON-RPC message; the parser must be positioned on its START_OBJECT
+     * and must have been created over {@code buffer} starting at {@code base}.
+     * <p>
+     * For requests that asked for a raw result, the {@code result} value is
+     * copied out of the buffer as bytes and never turned into a tree. Since
+     * {@code id} may follow {@code result}, a structured result seen before the
+     * id is only located, then decoded once the id is known.
+     */
+    private JsonRpcResponse readMessage(Session source, JsonParser parser, byte[] buffer, int base)
+            throws IOException {
+        JsonRpcResponse response = new JsonRpcResponse();
+        int resultStart = -1;
+        int resultEnd = -1;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> response.setId(value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue()
+                        : value == JsonToken.VALUE_STRING ? parser.getText() : null);
+                case "method" -> response.setMethod(value == JsonToken.VALUE_STRING ? parser.getText() : null);
+                case "params" -> response.setParams(objectMapper.readTree(parser));
+                case "result" -> {
+                    if (value.isStructStart() && (response.getId() == null || wantsRawResult(source, response.getId()))) {
+                        resultStart = base + (int) parser.currentTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        resultEnd = base + (int) parser.currentLocation().getByteOffset();
+                    } else {
+                        response.setResult(objectMapper.readTree(parser));
+                    }
+                }
+                case "error" -> response.setError(objectMapper.readValue(parser, JsonRpcResponse.JsonRpcError.class));
+                default -> parser.skipChildren();
+            }
         }
 
+        if (resultStart >= 0) {
+            if (wantsRawResult(source, response.getId())) {
+                response.setRawResult(Arrays.copyOfRange(buffer, resultStart, resultEnd));
+            } else {
+                try (JsonParser resultParser = objectMapper.getFactory()
+                        .createParser(buffer, resultStart, resultEnd - resultStart)) {
+                    response.setResult(objectMapper.readTree(resultParser));
+                }
+            }
+        }
         return response;
     }
 
-    private void sendNotification(JsonRpcRequest notification) throws IOException {
-        String jsonNotification = objectMapper.writeValueAsString(notification);
-        log.debug("Sending notification to {}: {}", config.getId(), jsonNotification);
+    private static boolean wantsRawResult(Session source, Object id) {
+        Long key = toRequestId(id);
+        PendingRequest pending = key != null ? source.pendingRequests.get(key) : null;
+        return pending != null && pending.rawResult;
+    }
 
-        writer.write(jsonNotification);
-        writer.newLine();
-        writer.flush();
+    /**
+     * Reads stderr in fixed-size chunks and keeps at most one character past
+     * {@link LogRingBuffer#MAX_LINE_LENGTH} of each line, so a server writing
+     * one endless line cannot grow memory; the ring buffer marks it as truncated.
+     */
+    private void drainStderr(InputStream stderr) {
+        try (Reader stderrReader = new InputStreamReader(stderr, StandardCharsets.UTF_8)) {
+            char[] chunk = new char[8192];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = stderrReader.read(chunk)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    char c = chunk[i];
+                    if (c == '\n') {
+                        logStderrLine(line);
+                    } else if (line.length() <= LogRingBuffer.MAX_LINE_LENGTH) {
+                        line.append(c);
+                    }
+                }
+            }
+            if (!line.isEmpty()) {
+                logStderrLine(line);
+            }
+        } catch (IOException e) {
+            log.debug("Stopped reading stderr of {}: {}", config.getId(), e.getMessage());
+        }
     }
 
-    public List<McpTool> listTools() throws IOException {
-        JsonRpcRequest request = new JsonRpcRequest(
-                requestIdCounter.getAndIncrement(),
-                "tools/list",
-                null);
+    private void logStderrLine(StringBuilder line) {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            length--;
+        }
+        String text = line.substring(0, length);
+        line.setLength(0);
+        stderrLog.add(text);
+        log.trace("[{}] {}", config.getId(), text);
+    }
 
-        JsonRpcResponse response = sendRequest(request);
+    private void dispatch(Session source, JsonRpcResponse response) {
+        if (response.getMethod() != null) {
+            if (response.getId() != null) {
+                log.debug("Ignoring '{}' request from {}", response.getMethod(), config.getId());
+                return;
+            }
+            try {
+                notificationListener.accept(response);
+            } catch (RuntimeException e) {
+                log.warn("Notification listener failed for '{}' from {}: {}", response.getMethod(),
+                        config.getId(), e.getMessage());
+            }
+            return;
+        }
 
-        if (response.getError() != null) {
-            throw new IOException("Failed to list tools: " + response.getError().getMessage());
+        Long id = toRequestId(response.getId());
+        if (id == null) {
+            log.debug("Ignoring message without id from {}", config.getId());
+            return;
         }
 
-        JsonNode resultNode = objectMapper.convertValue(response.getResult(), JsonNode.class);
-        JsonNode toolsNode = resultNode.get("tools");
+        PendingRequest pending = source.pendingRequests.remove(id);
+        if (pending == null) {
+            log.warn("Received response for unknown request {} from {}", id, config.getId());
+            return;
+        }
+        pending.future.complete(response);
+    }
 
-        List<McpTool> tools = new ArrayList<>();
-        if (toolsNode != null && toolsNode.isArray()) {
-            for (JsonNode toolNode : toolsNode) {
-                McpTool tool = objectMapper.treeToValue(toolNode, McpTool.class);
-                tools.add(tool);
+    private static Long toRequestId(Object id) {
+        if (id instanceof Number number) {
+            return number.longValue();
+        }
+        if (id instanceof String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException ignore) {
+                return null;
             }
         }
+        return null;
+    }
+
+    /**
+     * Send {@code notifications/cancelled} for a request that timed out, so
+     * the server can drop work nobody is waiting for
+     */
+    private void sendCancelled(Session target, PendingRequest request) {
+        if (!target.connected || target.streamClosed) {
+            return;
+        }
+        JsonRpcRequest notification = new JsonRpcRequest();
+        notification.setMethod("notifications/cancelled");
+        notification.setParams(Map.of("requestId", request.id, "reason", "Request timed out"));
+        try {
+            sendNotification(target, notification);
+        } catch (IOException e) {
+            log.debug("Could not cancel request {} on {}: {}", request.id, config.getId(), e.getMessage());
+        }
+    }
+
+    private void sendNotification(Session target, JsonRpcRequest notification) throws IOException {
+        byte[] jsonNotification = objectMapper.writeValueAsBytes(notification);
+        if (log.isDebugEnabled()) {
+            log.debug("Sending notification to {}: {}", config.getId(),
+                    new String(jsonNotification, StandardCharsets.UTF_8));
+        }
+
+        target.write(List.of(jsonNotification));
+    }
+
+    public List<McpTool> listTools() throws IOException {
+        return await(listToolsAsync());
+    }
+
+    public CompletableFuture<List<McpTool>> listToolsAsync() {
+        return listToolsAsync(requestTimeout);
+    }
+
+    /**
+     * List every tool, following {@code nextCursor} until the last page; each
+     * page gets its own {@code timeout}
+     */
+    public CompletableFuture<List<McpTool>> listToolsAsync(Duration timeout) {
+        return listAllPagesAsync(cursor -> listToolsPageAsync(cursor, timeout), null, new ArrayList<>());
+    }
 
-        return tools;
+    /**
+     * Fetch the page of tools starting at {@code cursor}, or the first page if it is null
+     */
+    public CompletableFuture<CatalogPage<McpTool>> listToolsPageAsync(String cursor, Duration timeout) {
+        return requestAsync("tools/list", cursorParams(cursor), timeout, "Failed to list tools: ",
+                response -> readPage(response, "tools", McpTool.class));
     }
 
     public JsonNode callTool(String toolName, Object arguments) throws IOException {
-        ToolCallRequest toolCallRequest = new ToolCallRequest(toolName,
+        return await(callToolAsync(toolName, arguments));
+    }
+
+    public JsonNode callTool(String toolName, Object arguments, Duration timeout) throws IOException {
+        return await(callToolAsync(toolName, arguments, timeout));
+    }
+
+    public CompletableFuture<JsonNode> callToolAsync(String toolName, Object arguments) {
+        return callToolAsync(toolName, arguments, requestTimeout);
+    }
+
+    public CompletableFuture<JsonNode> callToolAsync(String toolName, Object arguments, Duration timeout) {
+        return requestAsync("tools/call", toolCallParams(toolName, arguments), timeout, "Failed to call tool: ",
+                JsonRpcResponse::getResult);
+    }
+
+    /**
+     * Call a tool and ask the server to report progress; the server's
+     * {@code notifications/progress} messages carry {@code progressToken}
+     * and reach the notification listener.
+     */
+    public CompletableFuture<JsonNode> callToolAsync(String toolName, Object arguments, Duration timeout,
+            String progressToken) {
+        ObjectNode params = objectMapper.valueToTree(toolCallParams(toolName, arguments));
+        params.putObject("_meta").put("progressToken", progressToken);
+        return requestAsync("tools/call", params, timeout, "Failed to call tool: ", JsonRpcResponse::getResult);
+    }
+
+    /**
+     * Call a tool straight from the JSON bytes of a {@link ToolCallRequest}.
+     * The {@code arguments} bytes are spliced into the JSON-RPC frame and the
+     * {@code result} bytes are returned as received, so neither is decoded
+     * into objects on the way through.
+     *
+     * @throws IllegalArgumentException if the body is not a tool call object with a name
+     */
+    public CompletableFuture<byte[]> callToolRawAsync(byte[] toolCallJson, Duration timeout) {
+        String toolName = null;
+        int argumentsStart = -1;
+        int argumentsEnd = -1;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(toolCallJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Tool call must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                    toolName = parser.getText();
+                } else if ("arguments".equals(field) && value.isStructStart()) {
+                    argumentsStart = (int) parser.currentTokenLocation().getByteOffset();
+                    parser.skipChildren();
+                    argumentsEnd = (int) parser.currentLocation().getByteOffset();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid tool call JSON: " + e.getMessage(), e);
+        }
+        if (toolName == null) {
+            throw new IllegalArgumentException("Tool call is missing a name");
+        }
+
+        PendingRequest pending = new PendingRequest(requestIdCounter.getAndIncrement(), "tools/call", true);
+        Session target = session;
+        if (target == null || !target.connected) {
+            return failAll(List.of(pending), new IOException("Server not connected"), timeout).get(0)
+                    .thenApply(JsonRpcResponse::getRawResult);
+        }
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(128 + toolCallJson.length);
+        try {
+            frame.write(("{\"jsonrpc\":\"2.0\",\"id\":" + pending.id
+                    + ",\"method\":\"tools/call\",\"params\":{\"name\":").getBytes(StandardCharsets.UTF_8));
+            frame.write(objectMapper.writeValueAsBytes(toolName));
+            if (argumentsStart >= 0) {
+                frame.write(",\"arguments\":".getBytes(StandardCharsets.UTF_8));
+                for (int i = argumentsStart; i < argumentsEnd; i++) {
+                    byte b = toolCallJson[i];
+                    // Raw newlines can only be insignificant whitespace in valid JSON; keep the frame on one line
+                    frame.write(b == '\n' || b == '\r' ? ' ' : b);
+                }
+            }
+            frame.write("}}".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return failAll(List.of(pending), e, timeout).get(0).thenApply(JsonRpcResponse::getRawResult);
+        }
+
+        return transmit(target, List.of(pending), List.of(frame.toByteArray()), timeout).get(0)
+                .thenCompose(response -> rawResult(response, "Failed to call tool: "));
+    }
+
+    /**
+     * Read a resource and return the {@code resources/read} result as raw
+     * JSON bytes, so large text and base64 blob contents can be decoded while
+     * they are streamed out instead of being turned into strings here.
+     */
+    public CompletableFuture<byte[]> readResourceRawAsync(String uri, Duration timeout) {
+        JsonRpcRequest request = new JsonRpcRequest(requestIdCounter.getAndIncrement(), "resources/read",
+                Map.of("uri", uri));
+        PendingRequest pending = new PendingRequest((Long) request.getId(), request.getMethod(), true);
+        Session target = session;
+        if (target == null || !target.connected) {
+            return failAll(List.of(pending), new IOException("Server not connected"), timeout).get(0)
+                    .thenApply(JsonRpcResponse::getRawResult);
+        }
+
+        byte[] frame;
+        try {
+            frame = objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            return failAll(List.of(pending), e, timeout).get(0).thenApply(JsonRpcResponse::getRawResult);
+        }
+        return transmit(target, List.of(pending), List.of(frame), timeout).get(0)
+                .thenCompose(response -> rawResult(response, "Failed to read resource: "));
+    }
+
+    /**
+     * Ask the server to send {@code notifications/resources/updated} when the resource changes
+     */
+    public CompletableFuture<Void> subscribeResourceAsync(String uri) {
+        return requestAsync("resources/subscribe", Map.of("uri", uri), requestTimeout,
+                "Failed to subscribe to resource: ", response -> null);
+    }
+
+    private static CompletableFuture<byte[]> rawResult(JsonRpcResponse response, String errorPrefix) {
+        if (response.getError() != null) {
+            return CompletableFuture.failedFuture(new IOException(errorPrefix + response.getError().getMessage()));
+        }
+        byte[] rawResult = response.getRawResult();
+        if (rawResult == null) {
+            // Scalar or missing result; fall back to the decoded value
+            rawResult = String.valueOf(response.getResult()).getBytes(StandardCharsets.UTF_8);
+        }
+        return CompletableFuture.completedFuture(rawResult);
+    }
+
+    /**
+     * Call several tools in one write. Calls are sent as a JSON-RPC batch when
+     * {@link ServerConfig#getBatchRequests()} is set, otherwise pipelined. The
+     * results are in call order; a failed call carries its error instead of
+     * failing the others.
+     */
+    public CompletableFuture<List<ToolCallResult>> callToolsAsync(List<ToolCallRequest> calls, Duration timeout) {
+        List<JsonRpcRequest> requests = new ArrayList<>(calls.size());
+        for (ToolCallRequest call : calls) {
+            requests.add(new JsonRpcRequest(requestIdCounter.getAndIncrement(), "tools/call",
+                    toolCallParams(call.getName(), call.getArguments())));
+        }
+
+        List<CompletableFuture<JsonRpcResponse>> responses = sendAllAsync(requests, timeout,
+                Boolean.TRUE.equals(config.getBatchRequests()));
+
+        List<CompletableFuture<ToolCallResult>> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            String toolName = calls.get(i).getName();
+            results.add(responses.get(i).handle((response, error) -> toToolCallResult(toolName, response, error)));
+        }
+
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private ToolCallRequest toolCallParams(String toolName, Object arguments) {
+        return new ToolCallRequest(toolName,
                 arguments != null
                         ? objectMapper
                                 .convertValue(arguments,
                                         objectMapper.getTypeFactory().constructMapType(java.util.Map.class,
                                                 String.class, Object.class))
                         : null);
+    }
 
-        JsonRpcRequest request = new JsonRpcRequest(
-                requestIdCounter.getAndIncrement(),
-                "tools/call",
-                toolCallRequest);
-
-        JsonRpcResponse response = sendRequest(request);
-
+    private ToolCallResult toToolCallResult(String toolName, JsonRpcResponse response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            return new ToolCallResult(toolName, null, cause.getMessage());
+        }
         if (response.getError() != null) {
-            throw new IOException("Failed to call tool: " + response.getError().getMessage());
+            return new ToolCallResult(toolName, null, "Failed to call tool: " + response.getError().getMessage());
         }
-
-        return objectMapper.convertValue(response.getResult(), JsonNode.class);
+        return new ToolCallResult(toolName, response.getResult(), null);
     }
 
     public List<McpResource> listResources() throws IOException {
-        JsonRpcRequest request = new JsonRpcRequest(
-                requestIdCounter.getAndIncrement(),
-                "resources/list",
-                null);
+        return await(listResourcesAsync());
+    }
 
-        JsonRpcResponse response = sendRequest(request);
+    public CompletableFuture<List<McpResource>> listResourcesAsync() {
+        return listResourcesAsync(requestTimeout);
+    }
 
-        if (response.getError() != null) {
-            throw new IOException("Failed to list resources: " + response.getError().getMessage());
+    /**
+     * List every resource, following {@code nextCursor} until the last page;
+     * each page gets its own {@code timeout}
+     */
+    public CompletableFuture<List<McpResource>> listResourcesAsync(Duration timeout) {
+        return listAllPagesAsync(cursor -> listResourcesPageAsync(cursor, timeout), null, new ArrayList<>());
+    }
+
+    /**
+     * Fetch the page of resources starting at {@code cursor}, or the first page if it is null
+     */
+    public CompletableFuture<CatalogPage<McpResource>> listResourcesPageAsync(String cursor, Duration timeout) {
+        return requestAsync("resources/list", cursorParams(cursor), timeout, "Failed to list resources: ",
+                response -> readPage(response, "resources", McpResource.class));
+    }
+
+    private <T> CompletableFuture<List<T>> listAllPagesAsync(
+            Function<String, CompletableFuture<CatalogPage<T>>> fetchPage, String cursor, List<T> items) {
+        return fetchPage.apply(cursor).thenCompose(page -> {
+            items.addAll(page.getItems());
+            String next = page.getNextCursor();
+            if (next == null || next.equals(cursor)) {
+                return CompletableFuture.completedFuture(items);
+            }
+            return listAllPagesAsync(fetchPage, next, items);
+        });
+    }
+
+    private static Map<String, String> cursorParams(String cursor) {
+        return cursor != null ? Map.of("cursor", cursor) : null;
+    }
+
+    /**
+     * Sends a request and maps a successful response with {@code resultReader};
+     * JSON-RPC errors fail the future with an IOException prefixed by {@code errorPrefix}.
+     */
+    private <T> CompletableFuture<T> requestAsync(String method, Object params, Duration timeout,
+            String errorPrefix, ResultReader<T> resultReader) {
+        JsonRpcRequest request = new JsonRpcRequest(requestIdCounter.getAndIncrement(), method, params);
+
+        return sendRequestAsync(request, timeout).thenCompose(response -> {
+            if (response.getError() != null) {
+                return CompletableFuture.failedFuture(
+                        new IOException(errorPrefix + response.getError().getMessage()));
+            }
+            try {
+                return CompletableFuture.completedFuture(resultReader.read(response));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private <T> CatalogPage<T> readPage(JsonRpcResponse response, String field, Class<T> type) throws IOException {
+        JsonNode result = response.getResult();
+        JsonNode itemsNode = result != null ? result.get(field) : null;
+
+        List<T> items = new ArrayList<>();
+        if (itemsNode != null && itemsNode.isArray()) {
+            for (JsonNode itemNode : itemsNode) {
+                items.add(objectMapper.treeToValue(itemNode, type));
+            }
         }
 
-        JsonNode resultNode = objectMapper.convertValue(response.getResult(), JsonNode.class);
-        JsonNode resourcesNode = resultNode.get("resources");
+        JsonNode cursorNode = result != null ? result.get("nextCursor") : null;
+        String nextCursor = cursorNode != null && cursorNode.isTextual() && !cursorNode.asText().isEmpty()
+                ? cursorNode.asText() : null;
+        return new CatalogPage<>(items, nextCursor);
+    }
+
+    @FunctionalInterface
+    private interface ResultReader<T> {
+        T read(JsonRpcResponse response) throws IOException;
+    }
+
+    /**
+     * A request awaiting its response from the reader thread.
+     */
+    private static final class PendingRequest {
+        private final long id;
+        private final String method;
+        private final boolean rawResult;
+        private final CompletableFuture<JsonRpcResponse> future = new CompletableFuture<>();
+
+        private PendingRequest(long id, String method, boolean rawResult) {
+            this.id = id;
+            this.method = method;
+            this.rawResult = rawResult;
+        }
+    }
+
+    /**
+     * One server process started by {@link #connect}: its streams and the
+     * requests written to it.
+     */
+    private static final class Session {
+        private final Process process;
+        private final StdioFrameReader reader;
+        private final OutputStream writer;
+        private final Map<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+        // A lock rather than synchronized so a blocked write does not pin a virtual thread's carrier
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Set once initialized, cleared once stopped
+        private volatile boolean connected;
+        private volatile boolean streamClosed;
+
+        private Session(Process process, int maxFrameBytes) {
+            this.process = process;
+            this.reader = new StdioFrameReader(process.getInputStream(), maxFrameBytes);
+            this.writer = new BufferedOutputStream(process.getOutputStream());
+        }
 
-        List<McpResource> resources = new ArrayList<>();
-        if (resourcesNode != null && resourcesNode.isArray()) {
-            for (JsonNode resourceNode : resourcesNode) {
-                McpResource resource = objectMapper.treeToValue(resourceNode, McpResource.class);
-                resources.add(resource);
+        private void write(List<byte[]> frames) throws IOException {
+            writeLock.lock();
+            try {
+                for (byte[] frame : frames) {
+                    writer.write(frame);
+                    writer.write('\n');
+                }
+                writer.flush();
+            } finally {
+                writeLock.unlock();
             }
         }
 
-        return resources;
+        private void failPendingRequests(IOException cause) {
+            // Remove each entry before failing it, so a request registered meanwhile is either failed here or left alone
+            for (Iterator<PendingRequest> it = pendingRequests.values().iterator(); it.hasNext(); ) {
+                PendingRequest pending = it.next();
+                it.remove();
+                pending.future.completeExceptionally(cause);
+            }
+        }
     }
 
     public void disconnect() {
         log.info("Disconnecting from MCP server: {}", config.getId());
-        cleanup();
+        Session current = session;
+        if (current != null) {
+            cleanup(current);
+        }
+    }
+
+    /**
+     * Called when a connected process exits; processes stopped by
+     * {@link #disconnect} or replaced by a later {@link #connect} are ignored
+     */
+    private void handleExit(Session exited) {
+        if (exited != session || !exited.connected) {
+            return;
+        }
+        int exitCode = exited.process.exitValue();
+        log.warn("MCP server {} (pid {}) exited with code {}", config.getId(), exited.process.pid(), exitCode);
+        cleanup(exited);
+        exitListener.accept(exitCode);
     }
 
-    private void cleanup() {
-        connected = false;
+    private void cleanup(Session stopped) {
+        stopped.connected = false;
 
         try {
-            if (writer != null) {
-                writer.close();
-            }
+            stopped.writer.close();
         } catch (IOException e) {
             log.warn("Error closing writer: {}", e.getMessage());
         }
 
+        // Stop the process first so the reader thread sees EOF and releases the reader
+        stop(stopped.process);
+
         try {
-            if (reader != null) {
-                reader.close();
-            }
+            stopped.reader.close();
         } catch (IOException e) {
             log.warn("Error closing reader: {}", e.getMessage());
         }
 
-        if (serverProcess != null && serverProcess.isAlive()) {
-            serverProcess.destroy();
-            try {
-                serverProcess.waitFor(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                serverProcess.destroyForcibly();
+        stopped.failPendingRequests(new IOException("Disconnected from MCP server: " + config.getId()));
+    }
+
+    private static void stop(Process process) {
+        if (!process.isAlive()) {
+            return;
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
         }
     }
 
+    /**
+     * Receive notifications sent by the server. The listener runs on the
+     * reader thread, so it must return quickly.
+     */
+    public void setNotificationListener(Consumer<JsonRpcResponse> notificationListener) {
+        this.notificationListener = notificationListener;
+    }
+
+    /**
+     * Called with the exit code when the server process dies on its own
+     */
+    public void setExitListener(IntConsumer exitListener) {
+        this.exitListener = exitListener;
+    }
+
     public boolean isConnected() {
-        return connected && serverProcess != null && serverProcess.isAlive();
+        Session current = session;
+        return current != null && current.connected && !current.streamClosed && current.process.isAlive();
+    }
+
+    /**
+     * Number of requests currently awaiting a response.
+     */
+    public int getInFlightCount() {
+        Session current = session;
+        return current != null ? current.pendingRequests.size() : 0;
+    }
+
+    /**
+     * OS process id of the server, or {@code null} if it was never started.
+     */
+    public Long getPid() {
+        Session current = session;
+        return current != null ? current.process.pid() : null;
     }
 
     public ServerConfig getConfig() {
         return config;
     }
+
+    public LogRingBuffer getStderrLog() {
+        return stderrLog;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,596 @@
+package com.mcp.client.service;
+
+import com.mcp.client.entity.ServerEntity;
+import com.mcp.client.exception.McpTimeoutException;
+import com.mcp.client.exception.McpUnavailableException;
+import com.mcp.client.model.JsonRpcResponse;
+import com.mcp.client.model.ServerConfig;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A registered MCP server backed by one or more identical server processes.
+ * <p>
+ * Each call is routed to the connected replica with the fewest requests in
+ * flight; ties are broken round-robin so idle replicas share the load.
+ * Calls made through {@link #submit} and {@link #withReplica} may be limited
+ * by a {@link Bulkhead} across all replicas, with a bounded queue of callers
+ * waiting for a slot. {@link #submit} never blocks its caller: waiting for a
+ * slot, a lazy start or a restart is chained onto the returned future, and one
+ * deadline covers the waits and the call together.
+ * <p>
+ * A pool started with {@link #connectLazily} spawns its processes on the
+ * first call instead, and {@link #evictIfIdle} stops them again once no call
+ * has used them for a while; the next call spawns them anew.
+ * <p>
+ * A replica whose process dies is restarted in the background with
+ * exponential, jittered backoff. While no replica is running, calls wait for
+ * a restart until their deadline; once restarts have failed
+ * {@link ReconnectPolicy#circuitBreakerThreshold} times in a row the circuit
+ * opens and calls fail at once with {@link McpUnavailableException} until a
+ * restart succeeds.
+ */
+@Slf4j
+public class McpServerPool {
+    private final ServerConfig config;
+    private final List<McpServerConnection> replicas;
+    private final AtomicInteger nextStart = new AtomicInteger();
+    private final Bulkhead bulkhead; // null when concurrency is unbounded
+    private final Duration requestTimeout;
+    private final ThreadFactory ioThreads;
+    // Resumes calls that had to wait, off the thread that released a permit or finished a (re)start
+    private final Executor ioExecutor;
+    private final ReconnectPolicy reconnectPolicy;
+    private final Object lifecycle = new Object();
+    // Calls between taking a permit and completing; a pool is only evicted while there are none
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+    private volatile boolean lazy;
+    private volatile boolean started;
+    private volatile boolean closed;
+    // Lazy start in progress, shared by the calls that wait for it; guarded by lifecycle
+    private CompletableFuture<Void> starting;
+    private volatile IntConsumer spawnListener = count -> { };
+    private volatile Consumer<ServerEntity.Status> stateListener = status -> { };
+    // Replicas whose process died and that are waiting for or in a restart
+    private final Set<McpServerConnection> reconnecting = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean circuitOpen;
+    private volatile long nextAttemptAt;
+    // Completed when a replica is running again after all of them died
+    private volatile CompletableFuture<Void> recovered = CompletableFuture.completedFuture(null);
+    private String clientName;
+    private String clientVersion;
+
+    public McpServerPool(ServerConfig config, int replicaCount, Duration requestTimeout, int stderrBufferLines,
+            ThreadFactory ioThreads, Bulkhead bulkhead, ReconnectPolicy reconnectPolicy) {
+        this.config = config;
+        this.bulkhead = bulkhead;
+        this.requestTimeout = requestTimeout;
+        this.ioThreads = ioThreads;
+        this.ioExecutor = task -> ioThreads.newThread(task).start();
+        this.reconnectPolicy = reconnectPolicy;
+
+        List<McpServerConnection> connections = new ArrayList<>(replicaCount);
+        for (int i = 0; i < replicaCount; i++) {
+            McpServerConnection replica = new McpServerConnection(config, requestTimeout, stderrBufferLines,
+                    ioThreads);
+            replica.setExitListener(exitCode -> onReplicaExit(replica));
+            connections.add(replica);
+        }
+        this.replicas = Collections.unmodifiableList(connections);
+    }
+
+    /**
+     * Forward notifications from every replica to {@code listener}
+     */
+    public void setNotificationListener(Consumer<JsonRpcResponse> listener) {
+        for (McpServerConnection replica : replicas) {
+            replica.setNotificationListener(listener);
+        }
+    }
+
+    /**
+     * Called with the number of processes spawned each time the pool starts
+     * or restarts replicas
+     */
+    public void setSpawnListener(IntConsumer spawnListener) {
+        this.spawnListener = spawnListener;
+    }
+
+    /**
+     * Called whenever the pool's {@link #getStatus status} changes because it
+     * was started, went idle, lost or regained its processes, or opened its circuit
+     */
+    public void setStateListener(Consumer<ServerEntity.Status> stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Start and initialize every replica. If any replica fails, the ones
+     * already started are stopped again and the failure is rethrown.
+     */
+    public void connect(String clientName, String clientVersion) throws IOException {
+        synchronized (lifecycle) {
+            this.clientName = clientName;
+            this.clientVersion = clientVersion;
+            start();
+        }
+    }
+
+    /**
+     * Like {@link #connect}, but only spawn the replicas when the first call
+     * arrives, and allow them to be evicted when idle
+     */
+    public void connectLazily(String clientName, String clientVersion) {
+        synchronized (lifecycle) {
+            this.clientName = clientName;
+            this.clientVersion = clientVersion;
+            this.lazy = true;
+        }
+    }
+
+    private void start() throws IOException {
+        log.info("Starting {} replica(s) of MCP server: {}", replicas.size(), config.getId());
+        try {
+            for (McpServerConnection replica : replicas) {
+                replica.connect(clientName, clientVersion);
+            }
+        } catch (IOException e) {
+            stopReplicas();
+            throw e;
+        }
+        lastUsed = System.nanoTime();
+        started = true;
+        spawnListener.accept(replicas.size());
+        stateListener.accept(ServerEntity.Status.CONNECTED);
+    }
+
+    /**
+     * Completes once the replicas are running; the first call to a lazy pool
+     * that is not started spawns them on an I/O thread and later calls share that start
+     */
+    private CompletableFuture<Void> startAsync() {
+        if (started || !lazy) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (lifecycle) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IOException("Server not connected: " + config.getId()));
+            }
+            if (started) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (starting == null) {
+                CompletableFuture<Void> spawn = new CompletableFuture<>();
+                starting = spawn;
+                ioThreads.newThread(() -> startLazily(spawn)).start();
+            }
+            return starting;
+        }
+    }
+
+    private void startLazily(CompletableFuture<Void> spawn) {
+        Exception failure = null;
+        synchronized (lifecycle) {
+            try {
+                if (closed) {
+                    throw new IOException("Server not connected: " + config.getId());
+                }
+                if (!started) {
+                    start();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                starting = null;
+            }
+        }
+        if (failure != null) {
+            spawn.completeExceptionally(failure);
+        } else {
+            spawn.complete(null);
+        }
+    }
+
+    /**
+     * Stop the replicas of a lazily started pool if no call is in flight and
+     * none has completed within {@code idleTimeout}; returns whether they
+     * were stopped
+     */
+    public boolean evictIfIdle(Duration idleTimeout) {
+        if (!lazy || !started || activeCalls.get() > 0 || System.nanoTime() - lastUsed < idleTimeout.toNanos()) {
+            return false;
+        }
+        synchronized (lifecycle) {
+            // A pool restarting a replica is left alone so a restart never races a fresh start
+            if (!started || !reconnecting.isEmpty()) {
+                return false;
+            }
+            // Calls count themselves before checking started, so one that
+            // slipped in either shows up here or waits for the lock and respawns
+            started = false;
+            if (activeCalls.get() > 0) {
+                started = true;
+                return false;
+            }
+            log.info("Stopping idle MCP server: {}", config.getId());
+            stopReplicas();
+            stateListener.accept(ServerEntity.Status.IDLE);
+        }
+        return true;
+    }
+
+    private void onReplicaExit(McpServerConnection replica) {
+        synchronized (lifecycle) {
+            if (closed || !started || !reconnecting.add(replica)) {
+                return;
+            }
+            if (!isConnected() && !circuitOpen && recovered.isDone()) {
+                recovered = new CompletableFuture<>();
+                stateListener.accept(ServerEntity.Status.RECONNECTING);
+            }
+        }
+        scheduleReconnect(replica, 1);
+    }
+
+    private void scheduleReconnect(McpServerConnection replica, int attempt) {
+        long delay = reconnectPolicy.backoffNanos(attempt);
+        nextAttemptAt = System.nanoTime() + delay;
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, task -> ioThreads.newThread(task).start())
+                .execute(() -> reconnect(replica, attempt));
+    }
+
+    /**
+     * Restart a replica whose process died; runs outside the lifecycle lock
+     * since starting a server may take a while
+     */
+    private void reconnect(McpServerConnection replica, int attempt) {
+        if (closed || !started) {
+            reconnecting.remove(replica);
+            return;
+        }
+        try {
+            replica.connect(clientName, clientVersion);
+        } catch (IOException e) {
+            int failures = consecutiveFailures.incrementAndGet();
+            log.warn("Restart {} of a replica of MCP server {} failed: {}", attempt, config.getId(), e.getMessage());
+            if (closed) {
+                reconnecting.remove(replica);
+                return;
+            }
+            scheduleReconnect(replica, attempt + 1);
+            synchronized (lifecycle) {
+                if (!closed && !circuitOpen && failures >= reconnectPolicy.circuitBreakerThreshold()
+                        && !isConnected()) {
+                    log.error("Opening circuit of MCP server {} after {} failed restarts", config.getId(), failures);
+                    circuitOpen = true;
+                    recovered.completeExceptionally(unavailable());
+                    stateListener.accept(ServerEntity.Status.CIRCUIT_OPEN);
+                }
+            }
+            return;
+        }
+
+        spawnListener.accept(1);
+        synchronized (lifecycle) {
+            reconnecting.remove(replica);
+            if (closed) {
+                // Unregistered while it was starting
+                replica.disconnect();
+                return;
+            }
+            consecutiveFailures.set(0);
+            boolean wasDown = circuitOpen || !recovered.isDone();
+            circuitOpen = false;
+            recovered.complete(null);
+            if (wasDown) {
+                log.info("MCP server {} is running again", config.getId());
+                stateListener.accept(ServerEntity.Status.CONNECTED);
+            }
+        }
+    }
+
+    private McpUnavailableException unavailable() {
+        long wait = Math.max(nextAttemptAt - System.nanoTime(), TimeUnit.SECONDS.toNanos(1));
+        return new McpUnavailableException("MCP server " + config.getId() + " is unavailable after "
+                + consecutiveFailures.get() + " failed restarts", Duration.ofNanos(wait));
+    }
+
+    /**
+     * Pick the connected replica with the fewest in-flight requests, waiting
+     * for a restart if none is running.
+     */
+    private CompletableFuture<McpServerConnection> selectAsync() {
+        McpServerConnection best = leastBusy();
+        if (best != null) {
+            return CompletableFuture.completedFuture(best);
+        }
+        if (circuitOpen) {
+            return CompletableFuture.failedFuture(unavailable());
+        }
+        return recovered.thenCompose(ignored -> {
+            McpServerConnection replica = leastBusy();
+            return replica != null
+                    ? CompletableFuture.completedFuture(replica)
+                    : CompletableFuture.failedFuture(new IOException("Server not connected: " + config.getId()));
+        });
+    }
+
+    private McpServerConnection leastBusy() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+
+        McpServerConnection best = null;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            McpServerConnection replica = replicas.get((start + i) % size);
+            if (!replica.isConnected()) {
+                continue;
+            }
+            int inFlight = replica.getInFlightCount();
+            if (inFlight < bestInFlight) {
+                best = replica;
+                bestInFlight = inFlight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * {@link #submit} with the pool's request timeout
+     */
+    public <T> CompletableFuture<T> submit(ReplicaCall<T> call) {
+        return submit(call, requestTimeout);
+    }
+
+    /**
+     * Run {@code call} against the least busy replica while holding one of the
+     * pool's concurrency permits; the permit is returned when the call's
+     * future completes. The future fails with {@link McpTimeoutException} once
+     * {@code timeout} has passed, whether the call was still waiting for a
+     * permit, a start or a restart, or for the server's answer.
+     */
+    public <T> CompletableFuture<T> submit(ReplicaCall<T> call, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            return CompletableFuture.failedFuture(timedOut(timeout));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        beginAsync().whenComplete((replica, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            if (result.isDone()) {
+                // The deadline passed while the call was waiting
+                end();
+                return;
+            }
+            CompletableFuture<T> response;
+            try {
+                response = call.apply(replica);
+            } catch (IOException | RuntimeException e) {
+                end();
+                result.completeExceptionally(e);
+                return;
+            }
+            response.whenComplete((value, callError) -> {
+                end();
+                if (callError != null) {
+                    result.completeExceptionally(unwrap(callError));
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        return withDeadline(result, timeout, () -> timedOut(timeout));
+    }
+
+    /**
+     * Run a sequence of blocking calls on one replica while holding a single
+     * concurrency permit, e.g. to walk a paginated listing whose cursors are
+     * only meaningful to the process that issued them. Waiting for the permit,
+     * a start or a restart is bounded by the request timeout.
+     */
+    public <T> T withReplica(ReplicaTask<T> task) throws IOException {
+        CompletableFuture<McpServerConnection> begun = beginAsync();
+        McpServerConnection replica;
+        try {
+            replica = McpServerConnection.await(withDeadline(begun.copy(), requestTimeout,
+                    () -> timedOut(requestTimeout)));
+        } catch (IOException e) {
+            // Gave up waiting; hand back the permit if it still arrives
+            begun.thenAccept(ignored -> end());
+            throw e;
+        }
+        try {
+            return task.run(replica);
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Take a permit, make sure the replicas are running and pick one; once the
+     * future succeeds the caller holds the permit and must call {@link #end}
+     */
+    private CompletableFuture<McpServerConnection> beginAsync() {
+        // Counted before started is checked, so eviction either sees this call or it respawns the replicas
+        activeCalls.incrementAndGet();
+        CompletableFuture<McpServerConnection> begun = new CompletableFuture<>();
+        acquirePermitAsync().whenComplete((ignored, permitError) -> {
+            if (permitError != null) {
+                activeCalls.decrementAndGet();
+                begun.completeExceptionally(unwrap(permitError));
+                return;
+            }
+            startAsync().thenCompose(ignoredStart -> selectAsync()).whenComplete((replica, error) -> {
+                if (error != null) {
+                    end();
+                    begun.completeExceptionally(unwrap(error));
+                } else {
+                    begun.complete(replica);
+                }
+            });
+        });
+        // A call that had to wait goes on on an I/O thread, never on a thread
+        // that released a permit, finished a (re)start or fired a timeout
+        return begun.isDone() ? begun : begun.whenCompleteAsync((replica, error) -> { }, ioExecutor);
+    }
+
+    private void end() {
+        releasePermit();
+        lastUsed = System.nanoTime();
+        activeCalls.decrementAndGet();
+    }
+
+    private CompletableFuture<Void> acquirePermitAsync() {
+        return bulkhead != null ? bulkhead.acquireAsync() : CompletableFuture.completedFuture(null);
+    }
+
+    private void releasePermit() {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    private McpTimeoutException timedOut(Duration timeout) {
+        return new McpTimeoutException("Request to MCP server " + config.getId() + " timed out after "
+                + Math.max(0, timeout.toMillis()) + " ms");
+    }
+
+    /**
+     * Fail {@code future} with the exception from {@code timeout} unless it
+     * completes within {@code limit}; the future itself is completed, so
+     * stages still waiting to run can tell the caller has given up
+     */
+    static <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration limit,
+            Supplier<? extends IOException> timeout) {
+        return future
+                .orTimeout(Math.max(0, limit.toNanos()), TimeUnit.NANOSECONDS)
+                .exceptionallyCompose(error -> {
+                    Throwable cause = unwrap(error);
+                    return CompletableFuture.failedFuture(cause instanceof TimeoutException ? timeout.get() : cause);
+                });
+    }
+
+    static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    public void disconnect() {
+        synchronized (lifecycle) {
+            closed = true;
+            started = false;
+            stopReplicas();
+            // Pending restarts notice the pool is closed and give up
+            reconnecting.clear();
+            circuitOpen = false;
+            recovered.completeExceptionally(new IOException("Server not connected: " + config.getId()));
+        }
+        if (bulkhead != null) {
+            bulkhead.close();
+        }
+    }
+
+    private void stopReplicas() {
+        for (McpServerConnection replica : replicas) {
+            try {
+                replica.disconnect();
+            } catch (Exception e) {
+                log.error("Error disconnecting replica of {}: {}", config.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A server is usable while at least one replica is connected.
+     */
+    public boolean isConnected() {
+        return replicas.stream().anyMatch(McpServerConnection::isConnected);
+    }
+
+    /**
+     * Whether the pool was started lazily and its replicas are not running,
+     * either because nothing has called it yet or because they were evicted
+     */
+    public boolean isIdle() {
+        return lazy && !started && !closed;
+    }
+
+    /**
+     * Whether a call can be served, by a running replica or one started or restarted for it
+     */
+    public boolean isAvailable() {
+        return isConnected() || isIdle() || (!circuitOpen && !reconnecting.isEmpty());
+    }
+
+    public ServerEntity.Status getStatus() {
+        if (isIdle()) {
+            return ServerEntity.Status.IDLE;
+        }
+        if (isConnected()) {
+            return ServerEntity.Status.CONNECTED;
+        }
+        if (circuitOpen) {
+            return ServerEntity.Status.CIRCUIT_OPEN;
+        }
+        return reconnecting.isEmpty() ? ServerEntity.Status.DISCONNECTED : ServerEntity.Status.RECONNECTING;
+    }
+
+    public List<McpServerConnection> getReplicas() {
+        return replicas;
+    }
+
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * How replicas whose process died are restarted
+     *
+     * @param initialBackoff          delay before the first restart, doubled after each failure
+     * @param maxBackoff              upper bound on the delay between restarts
+     * @param circuitBreakerThreshold consecutive failed restarts after which calls fail fast
+     */
+    public record ReconnectPolicy(Duration initialBackoff, Duration maxBackoff, int circuitBreakerThreshold) {
+
+        /**
+         * Delay before restart {@code attempt} (from 1), picked at random from
+         * the upper half of the backoff so that servers that died together
+         * do not restart in lockstep
+         */
+        long backoffNanos(int attempt) {
+            long delay = Math.min(initialBackoff.toNanos() << Math.min(attempt - 1, 20), maxBackoff.toNanos());
+            return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ReplicaCall<T> {
+        CompletableFuture<T> apply(McpServerConnection replica) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ReplicaTask<T> {
+        T run(McpServerConnection replica) throws IOException;
+    }
+}
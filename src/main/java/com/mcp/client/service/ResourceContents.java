@@ -0,0 +1,227 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Locates the content of a raw {@code resources/read} result and decodes it
+ * straight into an output stream.
+ * <p>
+ * Only the position of the {@code text} or {@code blob} string is recorded
+ * while scanning; the string itself is skipped, not materialized. Writing
+ * decodes incrementally from that position: blobs through the parser's
+ * base64 decoder, text by copying the UTF-8 bytes between escapes straight
+ * from the result, so neither is held as a Java string or a decoded byte array.
+ */
+final class ResourceContents {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    // Standard alphabet; tolerate servers that drop the trailing '=' padding
+    private static final Base64Variant BASE64 = Base64Variants.MIME_NO_LINEFEEDS
+            .withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+
+    private final byte[] raw;
+    private final String mimeType;
+    private final boolean blob;
+    private final int valueOffset;
+
+    private ResourceContents(byte[] raw, String mimeType, boolean blob, int valueOffset) {
+        this.raw = raw;
+        this.mimeType = mimeType;
+        this.blob = blob;
+        this.valueOffset = valueOffset;
+    }
+
+    /**
+     * Find the entry of {@code result.contents} for {@code uri}, or the first
+     * entry if none carries that uri
+     */
+    static ResourceContents locate(byte[] raw, String uri) throws IOException {
+        ResourceContents first = null;
+        try (JsonParser parser = JSON.createParser(raw)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected resources/read result");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"contents".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Entry entry = readEntry(parser);
+                    if (entry.valueOffset < 0) {
+                        continue;
+                    }
+                    ResourceContents contents = new ResourceContents(raw, entry.mimeType, entry.blob,
+                            entry.valueOffset);
+                    if (uri.equals(entry.uri)) {
+                        return contents;
+                    }
+                    if (first == null) {
+                        first = contents;
+                    }
+                }
+            }
+        }
+        if (first == null) {
+            throw new IOException("Resource has no text or blob contents: " + uri);
+        }
+        return first;
+    }
+
+    private static Entry readEntry(JsonParser parser) throws IOException {
+        Entry entry = new Entry();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_STRING) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "uri" -> entry.uri = parser.getText();
+                case "mimeType" -> entry.mimeType = parser.getText();
+                case "text", "blob" -> {
+                    // Left unread: the next nextToken() skips over the string without buffering it
+                    entry.blob = "blob".equals(field);
+                    entry.valueOffset = (int) parser.currentTokenLocation().getByteOffset();
+                }
+                default -> { }
+            }
+        }
+        return entry;
+    }
+
+    String getMimeType() {
+        if (mimeType != null) {
+            return mimeType;
+        }
+        return blob ? "application/octet-stream" : "text/plain;charset=UTF-8";
+    }
+
+    /**
+     * Upper bound of the decoded size in bytes, from what is left of the
+     * result after the start of the value
+     */
+    int maxDecodedLength() {
+        int remaining = raw.length - valueOffset;
+        // JSON escapes never decode to more UTF-8 bytes than they occupy
+        return blob ? remaining / 4 * 3 + 3 : remaining;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        if (!blob) {
+            writeText(out);
+            return;
+        }
+        try (JsonParser parser = JSON.createParser(raw, valueOffset, raw.length - valueOffset)) {
+            parser.nextToken();
+            parser.readBinaryValue(BASE64, out);
+        }
+    }
+
+    /**
+     * Unescape the JSON string at {@code valueOffset} into {@code out}. The
+     * result is already UTF-8, so runs without escapes are written as they are.
+     */
+    private void writeText(OutputStream out) throws IOException {
+        int i = valueOffset;
+        while (i < raw.length && raw[i] != '"') {
+            i++;
+        }
+        int run = ++i;
+        while (true) {
+            if (i >= raw.length) {
+                throw new IOException("Unterminated text in resources/read result");
+            }
+            byte b = raw[i];
+            if (b == '"') {
+                out.write(raw, run, i - run);
+                return;
+            }
+            if (b != '\\') {
+                i++;
+                continue;
+            }
+            out.write(raw, run, i - run);
+            if (i + 1 >= raw.length) {
+                throw new IOException("Unterminated text in resources/read result");
+            }
+            byte escaped = raw[i + 1];
+            i += 2;
+            switch (escaped) {
+                case 'b' -> out.write('\b');
+                case 'f' -> out.write('\f');
+                case 'n' -> out.write('\n');
+                case 'r' -> out.write('\r');
+                case 't' -> out.write('\t');
+                case 'u' -> {
+                    int codePoint = hex4(i);
+                    i += 4;
+                    if (Character.isHighSurrogate((char) codePoint) && i + 5 < raw.length
+                            && raw[i] == '\\' && raw[i + 1] == 'u'
+                            && Character.isLowSurrogate((char) hex4(i + 2))) {
+                        codePoint = Character.toCodePoint((char) codePoint, (char) hex4(i + 2));
+                        i += 6;
+                    }
+                    writeUtf8(out, codePoint);
+                }
+                // '"', '\\' and '/' stand for themselves
+                default -> out.write(escaped);
+            }
+            run = i;
+        }
+    }
+
+    private int hex4(int offset) throws IOException {
+        if (offset + 4 > raw.length) {
+            throw new IOException("Truncated \\u escape in resources/read result");
+        }
+        int value = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            int digit = Character.digit(raw[i], 16);
+            if (digit < 0) {
+                throw new IOException("Invalid \\u escape in resources/read result");
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static void writeUtf8(OutputStream out, int codePoint) throws IOException {
+        if (Character.isSurrogate((char) codePoint) && codePoint <= Character.MAX_VALUE) {
+            // Unpaired surrogate; not representable in UTF-8
+            codePoint = 0xFFFD;
+        }
+        if (codePoint < 0x80) {
+            out.write(codePoint);
+        } else if (codePoint < 0x800) {
+            out.write(0xC0 | codePoint >> 6);
+            out.write(0x80 | codePoint & 0x3F);
+        } else if (codePoint < 0x10000) {
+            out.write(0xE0 | codePoint >> 12);
+            out.write(0x80 | codePoint >> 6 & 0x3F);
+            out.write(0x80 | codePoint & 0x3F);
+        } else {
+            out.write(0xF0 | codePoint >> 18);
+            out.write(0x80 | codePoint >> 12 & 0x3F);
+            out.write(0x80 | codePoint >> 6 & 0x3F);
+            out.write(0x80 | codePoint & 0x3F);
+        }
+    }
+
+    private static final class Entry {
+        private String uri;
+        private String mimeType;
+        private boolean blob;
+        private int valueOffset = -1;
+    }
+}
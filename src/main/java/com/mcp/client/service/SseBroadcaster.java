@@ -0,0 +1,169 @@
+package com.mcp.client.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans events out to Server-Sent Event subscribers grouped by topic.
+ * <p>
+ * Publishing never blocks: each subscriber has its own queue that is drained
+ * in order on a thread of its own (virtual with
+ * {@code spring.threads.virtual.enabled}), so a slow client cannot stall the
+ * server reader thread that produced the event. A subscriber whose queue exceeds
+ * {@code mcp.client.sse-queue-size} is disconnected.
+ */
+@Slf4j
+@Component
+public class SseBroadcaster {
+
+    private static final Object COMPLETE = new Object();
+
+    @Value("${mcp.client.sse-timeout:30m}")
+    private Duration emitterTimeout;
+
+    @Value("${mcp.client.sse-queue-size:1000}")
+    private int maxQueuedEvents;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(task -> (virtualThreads
+            ? Thread.ofVirtual().factory()
+            : Thread.ofPlatform().daemon().factory()).newThread(task));
+
+    /**
+     * Open a new SSE stream on {@code topic}
+     */
+    public SseEmitter subscribe(String topic) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(topic, emitter);
+
+        topics.computeIfAbsent(topic, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        return emitter;
+    }
+
+    public boolean hasSubscribers(String topic) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+
+    /**
+     * Queue an event for every subscriber of {@code topic}; {@code data} is
+     * written as JSON
+     */
+    public void publish(String topic, String eventName, Object data) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Send any queued events, then end every stream on {@code topic}
+     */
+    public void complete(String topic) {
+        Set<Subscriber> subscribers = topics.remove(topic);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(COMPLETE);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        topics.keySet().forEach(this::complete);
+        senders.shutdown();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed.set(true);
+        topics.computeIfPresent(subscriber.topic, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * One open stream. Events are queued and sent by at most one drain task at a time.
+     */
+    private final class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        // Pending SseEventBuilders, or COMPLETE to end the stream
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueuedEvents) {
+                log.warn("SSE subscriber on {} is too slow, closing its stream", topic);
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            queue.add(item);
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Object next;
+                while ((next = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (closed.get()) {
+                        continue;
+                    }
+                    if (next == COMPLETE) {
+                        closed.set(true);
+                        emitter.complete();
+                        continue;
+                    }
+                    try {
+                        emitter.send((SseEmitter.SseEventBuilder) next);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("SSE subscriber on {} went away: {}", topic, e.getMessage());
+                        remove(this);
+                    }
+                }
+                draining.set(false);
+                // An event may have been queued after the last poll but before the flag was cleared
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
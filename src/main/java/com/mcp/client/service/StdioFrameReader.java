@@ -0,0 +1,101 @@
+package com.mcp.client.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits an MCP stdio stream into newline-delimited frames without decoding
+ * them to strings. Frames are exposed as a window over a reusable byte buffer
+ * that stays valid until the next call to {@link #next()}.
+ */
+class StdioFrameReader {
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    // Release buffers grown for a huge frame once it has been consumed
+    private static final int RETAINED_BUFFER_BYTES = 1024 * 1024;
+
+    private final InputStream input;
+    private final int maxFrameBytes;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+    private int start; // first unread byte
+    private int end;   // one past the last byte read from the stream
+
+    private int frameOffset;
+    private int frameLength;
+
+    StdioFrameReader(InputStream input, int maxFrameBytes) {
+        this.input = input;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    /**
+     * Advance to the next frame. Returns {@code false} once the stream is
+     * exhausted.
+     */
+    boolean next() throws IOException {
+        int scanFrom = start;
+        while (true) {
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    frameOffset = start;
+                    frameLength = i - start;
+                    start = i + 1;
+                    return true;
+                }
+            }
+
+            compact();
+            scanFrom = end;
+
+            if (end == buffer.length) {
+                if (buffer.length >= maxFrameBytes) {
+                    throw new IOException("Frame exceeds " + maxFrameBytes + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, maxFrameBytes));
+            }
+
+            int read = input.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                if (end > start) {
+                    // Last frame without a trailing newline
+                    frameOffset = start;
+                    frameLength = end - start;
+                    start = end;
+                    return true;
+                }
+                return false;
+            }
+            end += read;
+        }
+    }
+
+    private void compact() {
+        int remaining = end - start;
+        if (buffer.length > RETAINED_BUFFER_BYTES && remaining < INITIAL_BUFFER_BYTES) {
+            byte[] smaller = new byte[INITIAL_BUFFER_BYTES];
+            System.arraycopy(buffer, start, smaller, 0, remaining);
+            buffer = smaller;
+        } else if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, remaining);
+        }
+        start = 0;
+        end = remaining;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int frameOffset() {
+        return frameOffset;
+    }
+
+    int frameLength() {
+        return frameLength;
+    }
+
+    void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,237 @@
+package com.mcp.client.service;
+
+import com.mcp.client.entity.ToolJobEntity;
+import com.mcp.client.exception.JobQueueFullException;
+import com.mcp.client.repository.ToolJobRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable queue of tool jobs backed by the {@code tool_jobs} table.
+ * <p>
+ * Submitted jobs are stored as PENDING and picked up by a fixed pool of
+ * workers. A worker claims a job with a conditional update that only succeeds
+ * while the job is still PENDING, so each job runs on one worker even when
+ * several application instances share the database. The claim carries a lease
+ * that this instance renews while the job runs; if the instance dies, the
+ * lease expires and the job is queued again (up to
+ * {@code mcp.client.job-max-attempts} times) by whichever instance sweeps next,
+ * including this one after a restart.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ToolJobQueue {
+
+    // Suggested wait for clients turned away by a full queue
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final ToolJobRepository toolJobRepository;
+    private final McpClientService mcpClientService;
+    private final ToolJobStateWriter stateWriter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mcp.client.job-workers:8}")
+    private int workerCount;
+
+    @Value("${mcp.client.job-lease:60s}")
+    private Duration lease;
+
+    @Value("${mcp.client.job-poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${mcp.client.job-max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${mcp.client.job-queue-limit:1000}")
+    private int queueLimit;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "-"
+            + UUID.randomUUID().toString().substring(0, 8);
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Store a job as PENDING and wake a worker for it
+     *
+     * @throws JobQueueFullException if {@code mcp.client.job-queue-limit} jobs are already waiting
+     */
+    public ToolJobEntity submit(String serverId, String toolName, String argumentsJson) {
+        long pending = toolJobRepository.countByStatus(ToolJobEntity.Status.PENDING);
+        if (pending >= queueLimit) {
+            throw new JobQueueFullException("Job queue is full (" + pending + " jobs waiting)", RETRY_AFTER);
+        }
+
+        ToolJobEntity job = toolJobRepository.save(ToolJobEntity.builder()
+                .serverId(serverId)
+                .toolName(toolName)
+                .argumentsJson(argumentsJson)
+                .status(ToolJobEntity.Status.PENDING)
+                .attempts(0)
+                .createdAt(LocalDateTime.now())
+                .build());
+        wake();
+        return job;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Jobs left RUNNING by a previous run of this or another instance
+        sweepExpiredLeases();
+
+        meterRegistry.gauge("mcp.jobs.active", activeJobs);
+        ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name("mcp-job-worker-", 0).factory()
+                : Thread.ofPlatform().name("mcp-job-worker-", 0).daemon().factory();
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threads.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Started {} job workers as {}", workerCount, owner);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        wakeups.release(workerCount);
+        // Write finished jobs before giving up their leases; results of jobs
+        // still running are discarded, as the writer's lease check fails once released
+        stateWriter.shutdown();
+        int released = toolJobRepository.releaseLeases(owner, ToolJobEntity.Status.RUNNING,
+                ToolJobEntity.Status.PENDING);
+        if (released > 0) {
+            log.info("Returned {} running jobs to the queue", released);
+        }
+    }
+
+    /**
+     * Keep the leases of jobs running here alive, and put jobs whose worker
+     * disappeared back in the queue
+     */
+    @Scheduled(fixedDelayString = "${mcp.client.job-sweep-interval:15s}",
+            initialDelayString = "${mcp.client.job-sweep-interval:15s}")
+    public void maintainLeases() {
+        if (!running) {
+            return;
+        }
+        // A finished job keeps its lease until its outcome is written, which write-behind may delay
+        if (activeJobs.get() > 0 || stateWriter.hasPending(owner)) {
+            toolJobRepository.renewLeases(owner, leaseDeadline(), ToolJobEntity.Status.RUNNING);
+        }
+        sweepExpiredLeases();
+    }
+
+    private void sweepExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = toolJobRepository.failExpired(now, maxAttempts,
+                "{\"error\":\"Job abandoned after " + maxAttempts + " attempts\"}",
+                ToolJobEntity.Status.RUNNING, ToolJobEntity.Status.FAILED);
+        int requeued = toolJobRepository.requeueExpired(now, maxAttempts, ToolJobEntity.Status.RUNNING,
+                ToolJobEntity.Status.PENDING);
+        if (failed > 0 || requeued > 0) {
+            log.warn("Recovered jobs with expired leases: {} requeued, {} failed", requeued, failed);
+        }
+        if (requeued > 0) {
+            wake();
+        }
+    }
+
+    private void wake() {
+        // One pending wakeup per worker is enough; the rest poll the table
+        if (wakeups.availablePermits() < workerCount) {
+            wakeups.release();
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                ToolJobEntity job = claimNext();
+                if (job == null) {
+                    wakeups.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                activeJobs.incrementAndGet();
+                try {
+                    mcpClientService.executeToolJob(job, owner);
+                } finally {
+                    activeJobs.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Job worker failed: {}", e.getMessage(), e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * Claim the next pending job, or return null if there is none. Workers
+     * start at a random candidate so they rarely race for the same row.
+     */
+    private ToolJobEntity claimNext() {
+        while (running) {
+            List<ToolJobEntity> candidates = toolJobRepository.findByStatusOrderByIdAsc(
+                    ToolJobEntity.Status.PENDING, PageRequest.of(0, workerCount));
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            int start = ThreadLocalRandom.current().nextInt(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                ToolJobEntity job = candidates.get((start + i) % candidates.size());
+                // The row was read before the claim, so only the claimed fields need updating locally
+                if (toolJobRepository.claim(job.getId(), owner, leaseDeadline(), ToolJobEntity.Status.PENDING,
+                        ToolJobEntity.Status.RUNNING) == 1) {
+                    job.setStatus(ToolJobEntity.Status.RUNNING);
+                    job.setLeaseOwner(owner);
+                    job.setAttempts((job.getAttempts() != null ? job.getAttempts() : 0) + 1);
+                    return job;
+                }
+            }
+            // Every candidate was taken by another worker; look again
+        }
+        return null;
+    }
+
+    private LocalDateTime leaseDeadline() {
+        return LocalDateTime.now().plus(lease);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.mcp.client.service;
+
+import com.mcp.client.entity.ToolJobEntity;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Records the outcome of finished jobs in {@code tool_jobs}.
+ * <p>
+ * With {@code mcp.client.job-write-behind} on (the default), outcomes are
+ * buffered and written by one background thread as a single JDBC batch every
+ * {@code mcp.client.job-flush-interval}, or sooner once
+ * {@code mcp.client.job-flush-batch-size} are waiting. Outcomes still in the
+ * buffer are lost if the process dies, but the job's lease then expires and
+ * the queue runs it again. With write-behind off, each outcome is written
+ * before {@link #complete} returns; if that write fails, the outcome is
+ * dropped the same way and reported as not applied.
+ * <p>
+ * Each write only applies while the worker still holds the job's lease; the
+ * callback passed to {@link #complete} learns whether it did. Until then the
+ * outcome counts as pending for {@link #hasPending}, so the queue keeps the
+ * lease alive however long the write takes, retries included.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ToolJobStateWriter {
+
+    private static final String COMPLETE_SQL = "UPDATE tool_jobs SET status = ?, result_json = ?, completed_at = ?, "
+            + "lease_owner = NULL, lease_expires_at = NULL WHERE id = ? AND lease_owner = ? AND status = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mcp.client.job-write-behind:true}")
+    private boolean writeBehind;
+
+    @Value("${mcp.client.job-flush-interval:50ms}")
+    private Duration flushInterval;
+
+    @Value("${mcp.client.job-flush-batch-size:200}")
+    private int batchSize;
+
+    private final BlockingQueue<Completion> buffer = new LinkedBlockingQueue<>();
+    private final Object writeLock = new Object();
+    private final Map<String, AtomicInteger> pendingByOwner = new ConcurrentHashMap<>();
+    private DistributionSummary batchSizes;
+    private Timer flushDuration;
+    private Timer writeDelay;
+    private Thread flusher;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void init() {
+        batchSizes = DistributionSummary.builder("mcp.jobs.flush.size")
+                .description("Job outcomes written per batch")
+                .register(meterRegistry);
+        flushDuration = Timer.builder("mcp.jobs.flush.duration")
+                .description("Time to write one batch of job outcomes")
+                .register(meterRegistry);
+        writeDelay = Timer.builder("mcp.jobs.flush.delay")
+                .description("Time from a job finishing to its outcome being written")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("mcp.jobs.flush.pending", Tags.empty(), buffer);
+
+        if (writeBehind) {
+            flusher = Thread.ofPlatform().name("mcp-job-flusher").daemon().start(this::flushLoop);
+        }
+    }
+
+    /**
+     * Record the final state of {@code job} for {@code leaseOwner};
+     * {@code written} is called with whether the lease was still held, once
+     * the row has been updated
+     */
+    public void complete(ToolJobEntity job, String leaseOwner, Consumer<Boolean> written) {
+        Completion completion = new Completion(job.getId(), leaseOwner, job.getStatus(), job.getResultJson(),
+                job.getCompletedAt(), System.nanoTime(), written);
+        pendingByOwner.computeIfAbsent(leaseOwner, key -> new AtomicInteger()).incrementAndGet();
+        if (writeBehind && running) {
+            buffer.add(completion);
+        } else {
+            writeOrDrop(List.of(completion));
+        }
+    }
+
+    /**
+     * Whether outcomes recorded for {@code leaseOwner} have not been written yet
+     */
+    public boolean hasPending(String leaseOwner) {
+        AtomicInteger pending = pendingByOwner.get(leaseOwner);
+        return pending != null && pending.get() > 0;
+    }
+
+    /**
+     * Stop buffering and write everything still buffered on the calling
+     * thread; later outcomes are written synchronously. Called by the job
+     * queue before it gives up its leases, and again on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        List<Completion> batch = new ArrayList<>();
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            writeOrDrop(batch);
+            batch.clear();
+        }
+    }
+
+    private void flushLoop() {
+        List<Completion> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(buffer.take());
+                }
+                // Gather whatever else finishes within one interval of the oldest outcome
+                long deadline = batch.get(0).finishedAt() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Completion next = wait > 0 ? buffer.poll(wait, TimeUnit.NANOSECONDS) : buffer.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down; shutdown() writes whatever is left
+                buffer.addAll(batch);
+                return;
+            }
+
+            try {
+                write(batch);
+                batch.clear();
+            } catch (RuntimeException e) {
+                // Keep the batch and retry it, with whatever arrives meanwhile, after a pause
+                log.error("Failed to write {} job outcomes, retrying: {}", batch.size(), e.getMessage());
+                try {
+                    Thread.sleep(flushInterval.toMillis() * 10);
+                } catch (InterruptedException interrupted) {
+                    buffer.addAll(batch);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the batch once, without retrying; outcomes that fail to be written
+     * are settled as not applied, so they stop counting as pending
+     */
+    private void writeOrDrop(List<Completion> batch) {
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} job outcomes; the jobs run again once their leases expire: {}",
+                    batch.size(), e.getMessage());
+            batch.forEach(completion -> settle(completion, false));
+        }
+    }
+
+    private void write(List<Completion> batch) {
+        int[] updated;
+        // Serializes the flusher with a shutdown() that is draining the buffer
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            updated = jdbcTemplate.batchUpdate(COMPLETE_SQL, batch, batch.size(), (statement, completion) -> {
+                statement.setString(1, completion.status().name());
+                statement.setString(2, completion.resultJson());
+                statement.setTimestamp(3, completion.completedAt() != null
+                        ? Timestamp.valueOf(completion.completedAt()) : null);
+                statement.setLong(4, completion.jobId());
+                statement.setString(5, completion.leaseOwner());
+                statement.setString(6, ToolJobEntity.Status.RUNNING.name());
+            })[0];
+            flushDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        batchSizes.record(batch.size());
+
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Completion completion = batch.get(i);
+            writeDelay.record(now - completion.finishedAt(), TimeUnit.NANOSECONDS);
+            // Drivers that cannot report per-row counts answer SUCCESS_NO_INFO
+            settle(completion, updated[i] > 0 || updated[i] == Statement.SUCCESS_NO_INFO);
+        }
+    }
+
+    private void settle(Completion completion, boolean applied) {
+        pendingByOwner.get(completion.leaseOwner()).decrementAndGet();
+        try {
+            completion.written().accept(applied);
+        } catch (RuntimeException e) {
+            log.warn("Job {} outcome callback failed: {}", completion.jobId(), e.getMessage());
+        }
+    }
+
+    private record Completion(Long jobId, String leaseOwner, ToolJobEntity.Status status, String resultJson,
+            LocalDateTime completedAt, long finishedAt, Consumer<Boolean> written) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Results of idempotent tool calls, keyed by server, tool and a canonical
+ * hash of the arguments.
+ * <p>
+ * Only tools with a {@code cache-ttl} in {@link com.mcp.client.config.ToolPolicyProperties}
+ * are cached, each entry living for its tool's TTL. Results are stored as
+ * the raw JSON bytes returned by the server and bounded by total size.
+ */
+@Component
+@RequiredArgsConstructor
+public class ToolResultCache {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mcp.client.tool-cache-max-bytes:33554432}")
+    private long maxBytes;
+
+    private Cache<Key, Entry> results;
+
+    @PostConstruct
+    void init() {
+        results = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumWeight(maxBytes)
+                        .weigher((Key key, Entry entry) -> entry.result().length)
+                        .expireAfter(new Expiry<Key, Entry>() {
+                            @Override
+                            public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                                return entry.ttl().toNanos();
+                            }
+
+                            @Override
+                            public long expireAfterUpdate(Key key, Entry entry, long currentTime,
+                                    long currentDuration) {
+                                return entry.ttl().toNanos();
+                            }
+
+                            @Override
+                            public long expireAfterRead(Key key, Entry entry, long currentTime,
+                                    long currentDuration) {
+                                return currentDuration;
+                            }
+                        })
+                        .recordStats()
+                        .<Key, Entry>build(),
+                "mcp.tools.results");
+    }
+
+    public byte[] get(Key key) {
+        Entry entry = results.getIfPresent(key);
+        return entry != null ? entry.result() : null;
+    }
+
+    public void put(Key key, byte[] result, Duration ttl) {
+        results.put(key, new Entry(result, ttl));
+    }
+
+    public void evictServer(String serverId) {
+        results.asMap().keySet().removeIf(key -> key.serverId().equals(serverId));
+    }
+
+    /**
+     * Key for a call; argument objects hash the same regardless of field order
+     */
+    public static Key key(String serverId, String toolName, JsonNode arguments) {
+        return new Key(serverId, toolName, CanonicalJson.sha256(arguments));
+    }
+
+    /**
+     * Tool name of a raw tool call body, without decoding its arguments;
+     * null if the body has no name
+     */
+    public static String peekToolName(byte[] toolCallJson) {
+        try (JsonParser parser = JSON.createParser(toolCallJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Whether a raw tools/call result reports {@code isError: true}; such results are not cached
+     */
+    public static boolean isErrorResult(byte[] result) {
+        try (JsonParser parser = JSON.createParser(result)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("isError".equals(field)) {
+                    return value == JsonToken.VALUE_TRUE;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return true;
+        }
+        return false;
+    }
+
+    public record Key(String serverId, String toolName, String argumentsHash) {
+    }
+
+    private record Entry(byte[] result, Duration ttl) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.mcp.client.service;
+
+import com.mcp.client.exception.McpTimeoutException;
+import com.mcp.client.exception.McpUnavailableException;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void grantsSlotsUpToTheLimitAtOnce() {
+        Bulkhead bulkhead = bulkhead(2, 1, LONG_WAIT);
+
+        assertThat(bulkhead.acquireAsync()).isCompleted();
+        assertThat(bulkhead.acquireAsync()).isCompleted();
+        assertThat(bulkhead.acquireAsync()).isNotDone();
+        assertThat(gauge("test.active")).isEqualTo(2);
+        assertThat(gauge("test.queued")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsCallersOnceTheQueueIsFull() {
+        Bulkhead bulkhead = bulkhead(1, 2, LONG_WAIT);
+        bulkhead.acquireAsync();
+        bulkhead.acquireAsync();
+        bulkhead.acquireAsync();
+
+        CompletableFuture<Void> rejected = bulkhead.acquireAsync();
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(McpUnavailableException.class);
+        McpUnavailableException cause = (McpUnavailableException) rejected.handle((ok, error) -> error).join();
+        assertThat(cause.getRetryAfter()).isPositive();
+        assertThat(meterRegistry.counter("test.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAtOnceWithoutAQueue() {
+        Bulkhead bulkhead = bulkhead(1, 0, LONG_WAIT);
+        bulkhead.acquireAsync();
+
+        assertThatThrownBy(bulkhead.acquireAsync()::join).hasCauseInstanceOf(McpUnavailableException.class);
+    }
+
+    @Test
+    void handsReleasedSlotsToWaitersInArrivalOrder() {
+        Bulkhead bulkhead = bulkhead(1, 2, LONG_WAIT);
+        bulkhead.acquireAsync();
+        CompletableFuture<Void> first = bulkhead.acquireAsync();
+        CompletableFuture<Void> second = bulkhead.acquireAsync();
+
+        bulkhead.release();
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+
+        bulkhead.release();
+        assertThat(second).isCompleted();
+    }
+
+    @Test
+    void timesOutWaitersAndFreesTheirQueuePlace() {
+        Bulkhead bulkhead = bulkhead(1, 1, Duration.ofMillis(50));
+        bulkhead.acquireAsync();
+
+        CompletableFuture<Void> waiter = bulkhead.acquireAsync();
+
+        assertThatThrownBy(waiter::join).hasCauseInstanceOf(McpTimeoutException.class);
+        assertThat(gauge("test.queued")).isZero();
+        // The slot is still held by the first caller, so the next one queues rather than being rejected
+        assertThat(bulkhead.acquireAsync()).isNotDone();
+    }
+
+    @Test
+    void doesNotLeakSlotsToTimedOutWaiters() {
+        Bulkhead bulkhead = bulkhead(1, 1, Duration.ofMillis(50));
+        bulkhead.acquireAsync();
+        CompletableFuture<Void> waiter = bulkhead.acquireAsync();
+        assertThatThrownBy(waiter::join).hasCauseInstanceOf(McpTimeoutException.class);
+
+        bulkhead.release();
+
+        assertThat(bulkhead.acquireAsync()).isCompleted();
+        assertThat(gauge("test.active")).isEqualTo(1);
+    }
+
+    @Test
+    void grantsSeveralSlotsAtOnce() {
+        Bulkhead bulkhead = bulkhead(3, 2, LONG_WAIT);
+        bulkhead.acquireAsync();
+        bulkhead.acquireAsync();
+
+        CompletableFuture<Void> batch = bulkhead.acquireAsync(2, LONG_WAIT);
+        assertThat(batch).isNotDone();
+
+        bulkhead.release();
+        assertThat(batch).isCompleted();
+        assertThat(gauge("test.active")).isEqualTo(3);
+
+        bulkhead.release(2);
+        assertThat(gauge("test.active")).isEqualTo(1);
+    }
+
+    @Test
+    void smallRequestsDoNotOvertakeALargerOneWaitingAhead() {
+        Bulkhead bulkhead = bulkhead(2, 2, LONG_WAIT);
+        bulkhead.acquireAsync();
+        CompletableFuture<Void> batch = bulkhead.acquireAsync(2, LONG_WAIT);
+
+        CompletableFuture<Void> single = bulkhead.acquireAsync();
+
+        assertThat(single).isNotDone();
+        bulkhead.release();
+        assertThat(batch).isCompleted();
+        assertThat(single).isNotDone();
+        bulkhead.release(2);
+        assertThat(single).isCompleted();
+    }
+
+    @Test
+    void rejectsRequestsLargerThanTheLimit() {
+        Bulkhead bulkhead = bulkhead(2, 2, LONG_WAIT);
+
+        assertThatThrownBy(bulkhead.acquireAsync(3, LONG_WAIT)::join)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(gauge("test.active")).isZero();
+    }
+
+    private Bulkhead bulkhead(int maxConcurrent, int maxQueued, Duration maxWait) {
+        return new Bulkhead("test", maxConcurrent, maxQueued, maxWait, meterRegistry, "test", Tags.empty());
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
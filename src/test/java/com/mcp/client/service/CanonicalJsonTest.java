@@ -0,0 +1,66 @@
+package com.mcp.client.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CanonicalJsonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void ignoresFieldOrderAtEveryLevel() throws Exception {
+        assertThat(hash("{\"a\":1,\"b\":{\"x\":true,\"y\":[1,2]}}"))
+                .isEqualTo(hash("{\"b\":{\"y\":[1,2],\"x\":true},\"a\":1}"));
+    }
+
+    @Test
+    void keepsArrayOrder() throws Exception {
+        assertThat(hash("[1,2]")).isNotEqualTo(hash("[2,1]"));
+    }
+
+    @Test
+    void normalizesNumberSpelling() throws Exception {
+        assertThat(hash("{\"n\":1}"))
+                .isEqualTo(hash("{\"n\":1.0}"))
+                .isEqualTo(hash("{\"n\":1e0}"))
+                .isEqualTo(hash("{\"n\":1.000}"));
+        assertThat(hash("{\"n\":100}")).isEqualTo(hash("{\"n\":1e2}"));
+        assertThat(hash("{\"n\":1}")).isNotEqualTo(hash("{\"n\":1.5}"));
+    }
+
+    @Test
+    void distinguishesTypesWithTheSameText() throws Exception {
+        assertThat(hash("{\"v\":1}")).isNotEqualTo(hash("{\"v\":\"1\"}"));
+        assertThat(hash("{\"v\":true}")).isNotEqualTo(hash("{\"v\":\"true\"}"));
+        assertThat(hash("{\"v\":null}")).isNotEqualTo(hash("{\"v\":\"null\"}"));
+    }
+
+    @Test
+    void distinguishesKeysFromValues() throws Exception {
+        assertThat(hash("{\"a\":\"b\"}")).isNotEqualTo(hash("{\"b\":\"a\"}"));
+        assertThat(hash("{\"ab\":\"\"}")).isNotEqualTo(hash("{\"a\":\"b\"}"));
+    }
+
+    @Test
+    void hashesNullAndMissingLikeJsonNull() throws Exception {
+        String jsonNull = hash("null");
+
+        assertThat(CanonicalJson.sha256(null)).isEqualTo(jsonNull);
+        assertThat(CanonicalJson.sha256(MissingNode.getInstance())).isEqualTo(jsonNull);
+    }
+
+    @Test
+    void producesHexSha256() throws Exception {
+        assertThat(hash("{}")).hasSize(64).matches("[0-9a-f]+");
+    }
+
+    private String hash(String json) throws Exception {
+        JsonNode node = objectMapper.readTree(json);
+        return CanonicalJson.sha256(node);
+    }
+}
@@ -0,0 +1,202 @@
+package com.mcp.client.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightRequestsTest {
+
+    private static final InFlightRequests.Key KEY = InFlightRequests.key("server", "tools/list", null);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InFlightRequests inFlightRequests = new InFlightRequests(meterRegistry);
+
+    @Test
+    void followersShareTheLeadersCall() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> leader = inFlightRequests.join(KEY, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> follower = inFlightRequests.join(KEY, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("second call");
+        });
+        upstream.complete("result");
+
+        assertThat(leader.join()).isEqualTo("result");
+        assertThat(follower.join()).isEqualTo("result");
+        assertThat(calls).hasValue(1);
+        assertThat(coalesced()).isEqualTo(1);
+    }
+
+    @Test
+    void followersGetTheLeadersError() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlightRequests.join(KEY, () -> upstream);
+        CompletableFuture<String> follower = inFlightRequests.join(KEY, () -> upstream);
+
+        upstream.completeExceptionally(new IOException("server gone"));
+
+        assertThatThrownBy(leader::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class).hasRootCauseMessage("server gone");
+        assertThatThrownBy(follower::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class).hasRootCauseMessage("server gone");
+    }
+
+    @Test
+    void startsAFreshCallOnceTheLastOneFailed() {
+        inFlightRequests.join(KEY, () -> CompletableFuture.<String>failedFuture(new IOException("first")));
+
+        CompletableFuture<String> retry = inFlightRequests.join(KEY, () -> CompletableFuture.completedFuture("second"));
+
+        assertThat(retry.join()).isEqualTo("second");
+        assertThat(coalesced()).isZero();
+    }
+
+    @Test
+    void failsCallersWhenTheCallThrows() {
+        CompletableFuture<String> leader = inFlightRequests.join(KEY, () -> {
+            throw new IllegalStateException("no pool");
+        });
+
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(inFlightRequests.join(KEY, () -> CompletableFuture.completedFuture("next")).join())
+                .isEqualTo("next");
+    }
+
+    @Test
+    void cancellingOneCallerLeavesTheOthersWaiting() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlightRequests.join(KEY, () -> upstream);
+        CompletableFuture<String> follower = inFlightRequests.join(KEY, () -> upstream);
+
+        leader.cancel(true);
+        upstream.complete("result");
+
+        assertThat(follower.join()).isEqualTo("result");
+    }
+
+    @Test
+    void listingIsLoadedOnceAndReadInFullByEveryCaller() throws IOException {
+        List<Runnable> tasks = new ArrayList<>();
+        AtomicInteger loads = new AtomicInteger();
+        InFlightRequests.ListingLoad<String> load = pages -> {
+            loads.incrementAndGet();
+            pages.accept(List.of("a", "b"));
+            pages.accept(List.of("c"));
+        };
+
+        InFlightRequests.Listing<String> leader = inFlightRequests.joinListing(KEY, tasks::add, load);
+        InFlightRequests.Listing<String> follower = inFlightRequests.joinListing(KEY, tasks::add, load);
+        tasks.forEach(Runnable::run);
+
+        assertThat(follower).isSameAs(leader);
+        assertThat(drain(leader)).containsExactly("a", "b", "c");
+        assertThat(drain(follower)).containsExactly("a", "b", "c");
+        assertThat(loads).hasValue(1);
+        assertThat(coalesced()).isEqualTo(1);
+    }
+
+    @Test
+    void listingFailureReachesEveryReaderAfterThePagesSoFar() throws IOException {
+        List<Runnable> tasks = new ArrayList<>();
+        InFlightRequests.ListingLoad<String> load = pages -> {
+            pages.accept(List.of("a"));
+            throw new IOException("page 2 failed");
+        };
+
+        InFlightRequests.Listing<String> leader = inFlightRequests.joinListing(KEY, tasks::add, load);
+        InFlightRequests.Listing<String> follower = inFlightRequests.joinListing(KEY, tasks::add, load);
+        tasks.forEach(Runnable::run);
+
+        for (InFlightRequests.Listing<String> listing : List.of(leader, follower)) {
+            List<String> received = new ArrayList<>();
+            assertThatThrownBy(() -> listing.drainTo(received::addAll))
+                    .isInstanceOf(IOException.class).hasMessage("page 2 failed");
+            assertThat(received).containsExactly("a");
+        }
+
+        // The failed listing is not handed to later callers
+        InFlightRequests.Listing<String> retry = inFlightRequests.joinListing(KEY, Runnable::run,
+                pages -> pages.accept(List.of("fresh")));
+        assertThat(drain(retry)).containsExactly("fresh");
+    }
+
+    @Test
+    void readerThatStopsDoesNotAffectTheLoadOrOtherReaders() throws IOException {
+        AtomicInteger completedLoads = new AtomicInteger();
+        InFlightRequests.Listing<String> listing = inFlightRequests.joinListing(KEY, Runnable::run, pages -> {
+            pages.accept(List.of("a"));
+            pages.accept(List.of("b"));
+            completedLoads.incrementAndGet();
+        });
+
+        assertThatThrownBy(() -> listing.drainTo(page -> {
+            throw new IOException("client disconnected");
+        })).hasMessage("client disconnected");
+
+        assertThat(completedLoads).hasValue(1);
+        assertThat(drain(listing)).containsExactly("a", "b");
+    }
+
+    @Test
+    void readersReceivePagesBeforeTheListingCompletes() throws Exception {
+        CountDownLatch firstPageRead = new CountDownLatch(1);
+        Executor background = task -> Thread.ofVirtual().start(task);
+        InFlightRequests.Listing<String> listing = inFlightRequests.joinListing(KEY, background, pages -> {
+            pages.accept(List.of("a"));
+            try {
+                if (!firstPageRead.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("first page was not delivered");
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            pages.accept(List.of("b"));
+        });
+
+        List<String> received = new ArrayList<>();
+        listing.drainTo(page -> {
+            received.addAll(page);
+            firstPageRead.countDown();
+        });
+
+        assertThat(received).containsExactly("a", "b");
+    }
+
+    @Test
+    void rejectedListingFailsItsReaders() {
+        InFlightRequests.Listing<String> listing = inFlightRequests.joinListing(KEY, task -> {
+            throw new RejectedExecutionException("shutting down");
+        }, pages -> pages.accept(List.of("a")));
+
+        assertThatThrownBy(() -> drain(listing)).isInstanceOf(IOException.class).hasMessage("shutting down");
+    }
+
+    private static List<String> drain(InFlightRequests.Listing<String> listing) throws IOException {
+        List<String> items = new ArrayList<>();
+        listing.drainTo(items::addAll);
+        return items;
+    }
+
+    private double coalesced() {
+        return meterRegistry.counter("mcp.requests.coalesced", "method", "tools/list").count();
+    }
+}
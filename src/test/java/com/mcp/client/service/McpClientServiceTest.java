@@ -0,0 +1,69 @@
+package com.mcp.client.service;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class McpClientServiceTest {
+
+    private final Bulkhead bulkhead = new Bulkhead("test", 1, 1, Duration.ofSeconds(30), new SimpleMeterRegistry(),
+            "test", Tags.empty());
+
+    @Test
+    void waiterResumesOffTheThreadThatFreedItsSlot() throws Exception {
+        List<Map.Entry<Bulkhead, Integer>> slots = List.of(Map.entry(bulkhead, 1));
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        CountDownLatch unblock = new CountDownLatch(1);
+        ExecutorService resumeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CompletableFuture<String> first = new CompletableFuture<>();
+            McpClientService.holdingSlots(slots, 0, deadline, resumeExecutor, () -> first);
+            // Waits for the slot, then blocks like a write to a full stdin pipe
+            CompletableFuture<String> second = McpClientService.holdingSlots(slots, 0, deadline, resumeExecutor,
+                    () -> {
+                        try {
+                            unblock.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return CompletableFuture.completedFuture("second");
+                    });
+
+            // Completing the first call frees its slot on this thread, which must not run the second call
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> first.complete("first"));
+            assertThat(second).isNotDone();
+
+            unblock.countDown();
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        } finally {
+            unblock.countDown();
+            resumeExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void callerWithAFreeSlotGoesOnAtOnce() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Thread> ranOn = McpClientService.holdingSlots(List.of(Map.entry(bulkhead, 1)), 0, deadline,
+                task -> {
+                    throw new AssertionError("a free slot should not need the resume executor");
+                }, () -> CompletableFuture.completedFuture(Thread.currentThread()));
+
+        assertThat(ranOn.join()).isSameAs(caller);
+    }
+}
@@ -0,0 +1,175 @@
+package com.mcp.client.service;
+
+import com.mcp.client.exception.McpTimeoutException;
+import com.mcp.client.model.JsonRpcRequest;
+import com.mcp.client.model.JsonRpcResponse;
+import com.mcp.client.model.ServerConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class McpServerConnectionTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Answers initialize at once, then holds each pair of requests and
+     * answers the second before the first. On {@code test/exit} it exits,
+     * leaving behind a child that keeps its stdout open for another second;
+     * on {@code test/oversized} it writes a 90 KB line.
+     */
+    private static final String REORDERING_SERVER = """
+            import java.io.*;
+            import java.util.regex.*;
+
+            public class ReorderingServer {
+                public static void main(String[] args) throws IOException {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+                    Pattern idPattern = Pattern.compile("\\"id\\":(\\\\d+)");
+                    String held = null;
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        Matcher id = idPattern.matcher(line);
+                        if (!id.find()) {
+                            continue; // notification
+                        }
+                        if (line.contains("\\"test/exit\\"")) {
+                            new ProcessBuilder("sleep", "1").inheritIO().start();
+                            System.exit(0);
+                        }
+                        if (line.contains("\\"test/oversized\\"")) {
+                            System.out.println("{" + "\\"x\\":0,".repeat(15000) + "\\"id\\":" + id.group(1) + "}");
+                            System.out.flush();
+                            continue;
+                        }
+                        if (line.contains("\\"initialize\\"")) {
+                            respond(id.group(1), "{\\"protocolVersion\\":\\"2024-11-05\\",\\"capabilities\\":{}}");
+                        } else if (held == null) {
+                            held = id.group(1);
+                        } else {
+                            respond(id.group(1), "{\\"answeredId\\":" + id.group(1) + "}");
+                            respond(held, "{\\"answeredId\\":" + held + "}");
+                            held = null;
+                        }
+                    }
+                }
+
+                private static void respond(String id, String result) {
+                    System.out.println("{\\"jsonrpc\\":\\"2.0\\",\\"id\\":" + id + ",\\"result\\":" + result + "}");
+                    System.out.flush();
+                }
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private McpServerConnection connection;
+
+    private void connectToReorderingServer() throws IOException {
+        connection = new McpServerConnection(reorderingServer(), TIMEOUT, 100, Thread.ofPlatform().daemon().factory());
+        connection.connect("test-client", "1.0");
+    }
+
+    private ServerConfig reorderingServer() throws IOException {
+        // Run the server with the JVM running the tests, as a single-file source program
+        Path source = tempDir.resolve("ReorderingServer.java");
+        Files.writeString(source, REORDERING_SERVER);
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ServerConfig("reordering", java, List.of(source.toString()), null, 1, false);
+    }
+
+    @AfterEach
+    void disconnect() {
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void completesEachRequestWithItsOwnResponseWhenAnsweredOutOfOrder() throws Exception {
+        connectToReorderingServer();
+
+        CompletableFuture<JsonRpcResponse> first = connection.sendRequestAsync(
+                new JsonRpcRequest(100L, "test/echo", Map.of()), TIMEOUT);
+        CompletableFuture<JsonRpcResponse> second = connection.sendRequestAsync(
+                new JsonRpcRequest(101L, "test/echo", Map.of()), TIMEOUT);
+
+        JsonRpcResponse secondResponse = second.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        JsonRpcResponse firstResponse = first.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        assertThat(firstResponse.getResult().get("answeredId").asLong()).isEqualTo(100);
+        assertThat(secondResponse.getResult().get("answeredId").asLong()).isEqualTo(101);
+        assertThat(connection.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void failsRequestsThatAreNeverAnswered() throws IOException {
+        connectToReorderingServer();
+
+        // Held by the server until a second request arrives, which never happens
+        CompletableFuture<JsonRpcResponse> unanswered = connection.sendRequestAsync(
+                new JsonRpcRequest(200L, "test/echo", Map.of()), Duration.ofMillis(200));
+
+        assertThat(unanswered).failsWithin(TIMEOUT)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(McpTimeoutException.class);
+        assertThat(connection.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void staleReaderDoesNotCloseTheRestartedSession() throws Exception {
+        connectToReorderingServer();
+        connection.sendRequestAsync(new JsonRpcRequest(300L, "test/exit", Map.of()), TIMEOUT);
+        long giveUp = System.nanoTime() + TIMEOUT.toNanos();
+        while (connection.isConnected() && System.nanoTime() < giveUp) {
+            Thread.sleep(20);
+        }
+        assertThat(connection.isConnected()).isFalse();
+
+        // Restarted while the first reader still waits for the end of a stdout held open by the child
+        connection.connect("test-client", "1.0");
+        Thread.sleep(1500);
+
+        assertThat(connection.isConnected()).isTrue();
+        CompletableFuture<JsonRpcResponse> first = connection.sendRequestAsync(
+                new JsonRpcRequest(301L, "test/echo", Map.of()), TIMEOUT);
+        CompletableFuture<JsonRpcResponse> second = connection.sendRequestAsync(
+                new JsonRpcRequest(302L, "test/echo", Map.of()), TIMEOUT);
+        assertThat(first.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS).getResult().get("answeredId").asLong())
+                .isEqualTo(301);
+        assertThat(second.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS).getResult().get("answeredId").asLong())
+                .isEqualTo(302);
+    }
+
+    @Test
+    void stopsAServerWhoseOutputCanNoLongerBeRead() throws Exception {
+        connection = new McpServerConnection(reorderingServer(), TIMEOUT, 100, Thread.ofPlatform().daemon().factory(),
+                64 * 1024);
+        CompletableFuture<Integer> exited = new CompletableFuture<>();
+        connection.setExitListener(exited::complete);
+        connection.connect("test-client", "1.0");
+
+        CompletableFuture<JsonRpcResponse> oversized = connection.sendRequestAsync(
+                new JsonRpcRequest(400L, "test/oversized", Map.of()), TIMEOUT);
+
+        assertThat(oversized).failsWithin(TIMEOUT)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IOException.class);
+        assertThat(connection.isConnected()).isFalse();
+        // The exit listener is what restarts the replica
+        assertThat(exited).succeedsWithin(TIMEOUT);
+    }
+}
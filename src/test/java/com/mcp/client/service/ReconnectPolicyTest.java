@@ -0,0 +1,54 @@
+package com.mcp.client.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconnectPolicyTest {
+
+    private final McpServerPool.ReconnectPolicy policy = new McpServerPool.ReconnectPolicy(
+            Duration.ofSeconds(1), Duration.ofSeconds(60), 5);
+
+    @Test
+    void doublesTheBackoffAfterEachFailure() {
+        assertBetween(1, 0.5, 1);
+        assertBetween(2, 1, 2);
+        assertBetween(3, 2, 4);
+        assertBetween(6, 16, 32);
+    }
+
+    @Test
+    void capsTheBackoffAtTheMaximum() {
+        assertBetween(7, 30, 60);
+        assertBetween(20, 30, 60);
+    }
+
+    @Test
+    void doesNotOverflowForLongOutages() {
+        assertBetween(64, 30, 60);
+        assertBetween(Integer.MAX_VALUE, 30, 60);
+    }
+
+    @Test
+    void spreadsRestartsOverTheUpperHalfOfTheBackoff() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.backoffNanos(10);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        // 1000 draws from [30 s, 60 s] land well apart
+        assertThat(max - min).isGreaterThan(Duration.ofSeconds(10).toNanos());
+    }
+
+    private void assertBetween(int attempt, double minSeconds, double maxSeconds) {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.backoffNanos(attempt))
+                    .isBetween((long) (minSeconds * 1e9), (long) (maxSeconds * 1e9));
+        }
+    }
+}
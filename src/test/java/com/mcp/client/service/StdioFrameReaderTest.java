@@ -0,0 +1,142 @@
+package com.mcp.client.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StdioFrameReaderTest {
+
+    private static final int MAX_FRAME_BYTES = 8 * 1024 * 1024;
+
+    @Test
+    void splitsFramesOnNewlines() throws IOException {
+        StdioFrameReader reader = new StdioFrameReader(stream("{\"id\":1}\n{\"id\":2}\n\n{\"id\":3}\n"),
+                MAX_FRAME_BYTES);
+
+        assertThat(readAll(reader)).containsExactly("{\"id\":1}", "{\"id\":2}", "", "{\"id\":3}");
+    }
+
+    @Test
+    void returnsLastFrameWithoutTrailingNewline() throws IOException {
+        StdioFrameReader reader = new StdioFrameReader(stream("first\nlast"), MAX_FRAME_BYTES);
+
+        assertThat(readAll(reader)).containsExactly("first", "last");
+    }
+
+    @Test
+    void returnsNothingForEmptyStream() throws IOException {
+        StdioFrameReader reader = new StdioFrameReader(stream(""), MAX_FRAME_BYTES);
+
+        assertThat(reader.next()).isFalse();
+    }
+
+    @Test
+    void joinsFramesDeliveredInPartialReads() throws IOException {
+        String text = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}\n{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":{}}\n";
+        StdioFrameReader reader = new StdioFrameReader(new TricklingInputStream(bytes(text), 3), MAX_FRAME_BYTES);
+
+        assertThat(readAll(reader)).containsExactly("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{}}",
+                "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":{}}");
+    }
+
+    @Test
+    void growsBufferForFramesLargerThanInitialSize() throws IOException {
+        String large = "x".repeat(300 * 1024);
+        StdioFrameReader reader = new StdioFrameReader(new TricklingInputStream(bytes(large + "\nsmall\n"), 4096),
+                MAX_FRAME_BYTES);
+
+        assertThat(readAll(reader)).containsExactly(large, "small");
+    }
+
+    @Test
+    void releasesGrownBufferOnceLargeFrameIsConsumed() throws IOException {
+        String large = "x".repeat(2 * 1024 * 1024);
+        InputStream input = new SequenceInputStream(stream(large + "\n"), stream("small\n"));
+        StdioFrameReader reader = new StdioFrameReader(input, MAX_FRAME_BYTES);
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.frameLength()).isEqualTo(large.length());
+        assertThat(reader.buffer().length).isGreaterThan(1024 * 1024);
+
+        assertThat(reader.next()).isTrue();
+        assertThat(frame(reader)).isEqualTo("small");
+        assertThat(reader.buffer().length).isEqualTo(64 * 1024);
+    }
+
+    @Test
+    void rejectsFramesOverTheLimit() {
+        StdioFrameReader reader = new StdioFrameReader(stream("x".repeat(200 * 1024) + "\n"), 128 * 1024);
+
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Frame exceeds 131072 bytes");
+    }
+
+    @Test
+    void keepsMultibyteCharactersSplitAcrossReads() throws IOException {
+        String text = "{\"text\":\"héllo wörld 😀\"}";
+        StdioFrameReader reader = new StdioFrameReader(new TricklingInputStream(bytes(text + "\n"), 1),
+                MAX_FRAME_BYTES);
+
+        assertThat(readAll(reader)).containsExactly(text);
+    }
+
+    private static List<String> readAll(StdioFrameReader reader) throws IOException {
+        List<String> frames = new ArrayList<>();
+        while (reader.next()) {
+            frames.add(frame(reader));
+        }
+        return frames;
+    }
+
+    private static String frame(StdioFrameReader reader) {
+        return new String(reader.buffer(), reader.frameOffset(), reader.frameLength(), StandardCharsets.UTF_8);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(bytes(text));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns at most {@code chunk} bytes per read, like a pipe fed by a slow writer
+     */
+    private static final class TricklingInputStream extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private int position;
+
+        TricklingInputStream(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, chunk), data.length - position);
+            System.arraycopy(data, position, target, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mcp.client.service;
+
+import com.mcp.client.entity.ToolJobEntity;
+import com.mcp.client.exception.JobQueueFullException;
+import com.mcp.client.repository.ToolJobRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ToolJobQueueTest {
+
+    private final ToolJobRepository repository = mock(ToolJobRepository.class);
+    private final ToolJobStateWriter stateWriter = mock(ToolJobStateWriter.class);
+    private final ToolJobQueue queue = new ToolJobQueue(repository, mock(McpClientService.class), stateWriter,
+            new SimpleMeterRegistry());
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(queue, "queueLimit", 2);
+        ReflectionTestUtils.setField(queue, "lease", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        // As after start(), without spawning workers
+        ReflectionTestUtils.setField(queue, "running", true);
+    }
+
+    @Test
+    void storesSubmittedJobsAsPending() {
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ToolJobEntity job = queue.submit("server", "tool", "{}");
+
+        assertThat(job.getStatus()).isEqualTo(ToolJobEntity.Status.PENDING);
+        assertThat(job.getAttempts()).isZero();
+    }
+
+    @Test
+    void rejectsSubmissionsOnceTheQueueIsFull() {
+        when(repository.countByStatus(ToolJobEntity.Status.PENDING)).thenReturn(2L);
+
+        assertThatThrownBy(() -> queue.submit("server", "tool", "{}"))
+                .isInstanceOf(JobQueueFullException.class);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void doesNotRenewLeasesWithNothingRunningOrUnwritten() {
+        queue.maintainLeases();
+
+        verify(repository, never()).renewLeases(anyString(), any(), any());
+    }
+
+    @Test
+    void renewsLeasesWhileOutcomesAreWaitingToBeWritten() {
+        when(stateWriter.hasPending(anyString())).thenReturn(true);
+        LocalDateTime before = LocalDateTime.now();
+
+        queue.maintainLeases();
+
+        verify(repository).renewLeases(anyString(),
+                argThat(until -> until.isAfter(before.plusSeconds(59))),
+                eq(ToolJobEntity.Status.RUNNING));
+    }
+
+    @Test
+    void requeuesJobsWithExpiredLeases() {
+        queue.maintainLeases();
+
+        verify(repository).failExpired(any(), eq(3), anyString(), eq(ToolJobEntity.Status.RUNNING),
+                eq(ToolJobEntity.Status.FAILED));
+        verify(repository).requeueExpired(any(), eq(3), eq(ToolJobEntity.Status.RUNNING),
+                eq(ToolJobEntity.Status.PENDING));
+    }
+
+    @Test
+    void doesNothingOnceStopped() {
+        ReflectionTestUtils.setField(queue, "running", false);
+        when(stateWriter.hasPending(anyString())).thenReturn(true);
+
+        queue.maintainLeases();
+
+        verify(repository, never()).renewLeases(anyString(), any(), any());
+        verify(repository, never()).requeueExpired(any(), anyInt(), any(), any());
+    }
+}
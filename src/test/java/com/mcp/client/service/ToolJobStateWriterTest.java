@@ -0,0 +1,70 @@
+package com.mcp.client.service;
+
+import com.mcp.client.entity.ToolJobEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ToolJobStateWriterTest {
+
+    private static final String OWNER = "worker-1";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    // Write-behind is off unless configured, so every outcome is written before complete() returns
+    private final ToolJobStateWriter writer = new ToolJobStateWriter(jdbcTemplate, new SimpleMeterRegistry());
+    private final List<Boolean> written = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        writer.init();
+    }
+
+    @Test
+    void reportsWhetherTheLeaseWasStillHeld() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenReturn(new int[][] {{1}}, new int[][] {{0}});
+
+        writer.complete(job(1L), OWNER, written::add);
+        writer.complete(job(2L), OWNER, written::add);
+
+        assertThat(written).containsExactly(true, false);
+        assertThat(writer.hasPending(OWNER)).isFalse();
+    }
+
+    @Test
+    void settlesOutcomesThatFailToBeWritten() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        writer.complete(job(1L), OWNER, written::add);
+
+        assertThat(written).containsExactly(false);
+        // Otherwise the queue would renew this worker's leases forever
+        assertThat(writer.hasPending(OWNER)).isFalse();
+    }
+
+    private static ToolJobEntity job(Long id) {
+        ToolJobEntity job = new ToolJobEntity();
+        job.setId(id);
+        job.setStatus(ToolJobEntity.Status.SUCCESS);
+        job.setResultJson("{}");
+        job.setCompletedAt(LocalDateTime.now());
+        return job;
+    }
+}
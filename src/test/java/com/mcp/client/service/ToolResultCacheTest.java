@@ -0,0 +1,59 @@
+package com.mcp.client.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolResultCacheTest {
+
+    @Test
+    void peeksTheTopLevelToolName() {
+        assertThat(ToolResultCache.peekToolName(bytes("{\"name\":\"search\",\"arguments\":{\"q\":\"x\"}}")))
+                .isEqualTo("search");
+    }
+
+    @Test
+    void skipsNestedNamesBeforeTheToolName() {
+        String json = "{\"arguments\":{\"name\":\"nested\",\"items\":[{\"name\":\"deeper\"}]},\"name\":\"create\"}";
+
+        assertThat(ToolResultCache.peekToolName(bytes(json))).isEqualTo("create");
+    }
+
+    @Test
+    void hasNoToolNameWhenMissingOrNotAString() {
+        assertThat(ToolResultCache.peekToolName(bytes("{\"arguments\":{}}"))).isNull();
+        assertThat(ToolResultCache.peekToolName(bytes("{\"name\":42}"))).isNull();
+        assertThat(ToolResultCache.peekToolName(bytes("[\"name\"]"))).isNull();
+    }
+
+    @Test
+    void hasNoToolNameForMalformedJson() {
+        assertThat(ToolResultCache.peekToolName(bytes("{\"arguments\":{"))).isNull();
+        assertThat(ToolResultCache.peekToolName(bytes(""))).isNull();
+    }
+
+    @Test
+    void recognizesErrorResults() {
+        assertThat(ToolResultCache.isErrorResult(bytes(
+                "{\"content\":[{\"type\":\"text\",\"text\":\"failed\"}],\"isError\":true}"))).isTrue();
+    }
+
+    @Test
+    void treatsResultsWithoutIsErrorTrueAsSuccess() {
+        assertThat(ToolResultCache.isErrorResult(bytes("{\"content\":[],\"isError\":false}"))).isFalse();
+        assertThat(ToolResultCache.isErrorResult(bytes("{\"content\":[{\"type\":\"text\",\"text\":\"ok\"}]}")))
+                .isFalse();
+        assertThat(ToolResultCache.isErrorResult(bytes("{\"structuredContent\":{\"isError\":true}}"))).isFalse();
+    }
+
+    @Test
+    void treatsMalformedResultsAsErrors() {
+        assertThat(ToolResultCache.isErrorResult(bytes("{\"content\":["))).isTrue();
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}